@@ -0,0 +1,48 @@
+package spw4.game2048;
+
+import java.util.Random;
+
+// Mid-game boards reached by seeded random play, so every run measures the same positions.
+final class BoardCorpus {
+
+    static final int SIZE = 1024;
+    static final long SEED = 2048;
+
+    final int[][][] tiles = new int[SIZE][][];
+    final long[] boards = new long[SIZE];
+    final int[] moves = new int[SIZE];
+    final int[] scores = new int[SIZE];
+
+    BoardCorpus() {
+        Random random = new Random(SEED);
+        for (int i = 0; i < SIZE; i++) {
+            Game game = new GameImpl(new RealTileRandom(random.nextLong()));
+            game.initialize();
+            Solver solver = new RandomSolver(random.nextLong());
+            int length = random.nextInt(200);
+            for (int move = 0; move < length && !game.isOver(); move++) {
+                game.move(solver.findBestMove(game));
+            }
+
+            tiles[i] = new int[4][4];
+            for (int x = 0; x < 4; x++) {
+                for (int y = 0; y < 4; y++) {
+                    tiles[i][x][y] = game.getValueAt(x, y);
+                }
+            }
+            boards[i] = Bitboard.of(game);
+            moves[i] = game.getMoves();
+            scores[i] = game.getScore();
+        }
+    }
+
+    static int[][] fullBoard() {
+        int[][] tiles = new int[4][4];
+        for (int x = 0; x < 4; x++) {
+            for (int y = 0; y < 4; y++) {
+                tiles[x][y] = (x + y) % 2 == 0 ? 2 : 4;
+            }
+        }
+        return tiles;
+    }
+}
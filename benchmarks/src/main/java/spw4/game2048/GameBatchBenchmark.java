@@ -0,0 +1,56 @@
+package spw4.game2048;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// One step of every game in the batch per operation, finished games are reset right away.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class GameBatchBenchmark {
+
+    @Param({"1024", "65536"})
+    public int size;
+
+    private GameBatch batch;
+    private byte[][] directions;
+    private int step;
+
+    @Setup
+    public void setUp() {
+        batch = new GameBatch(size, BoardCorpus.SEED);
+        Random random = new Random(BoardCorpus.SEED);
+        directions = new byte[16][size];
+        for (byte[] stepDirections : directions) {
+            for (int i = 0; i < size; i++) {
+                stepDirections[i] = (byte) random.nextInt(4);
+            }
+        }
+    }
+
+    @Benchmark
+    public int step() {
+        batch.step(directions[step++ & 15]);
+        boolean[] done = batch.getDone();
+        for (int i = 0; i < size; i++) {
+            if (done[i])
+                batch.reset(i);
+        }
+        return batch.getRewards()[0];
+    }
+}
@@ -0,0 +1,63 @@
+package spw4.game2048;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class GameBenchmark {
+
+    private GameImpl emptyGame;
+    private GameImpl fullGame;
+    private RealTileRandom tileRandom;
+
+    @Setup
+    public void setUp() {
+        tileRandom = new RealTileRandom(BoardCorpus.SEED);
+        emptyGame = new GameImpl(tileRandom);
+        fullGame = new GameImpl(tileRandom);
+        fullGame.restore(BoardCorpus.fullBoard(), 0, 0);
+    }
+
+    @Benchmark
+    public boolean isOverEmptyBoard() {
+        return emptyGame.isOver();
+    }
+
+    @Benchmark
+    public boolean isOverFullBoard() {
+        return fullGame.isOver();
+    }
+
+    @Benchmark
+    public boolean isWonEmptyBoard() {
+        return emptyGame.isWon();
+    }
+
+    @Benchmark
+    public boolean isWonFullBoard() {
+        return fullGame.isWon();
+    }
+
+    // two spawns on a fresh board
+    @Benchmark
+    public GameImpl initialize() {
+        GameImpl newGame = new GameImpl(tileRandom);
+        newGame.initialize();
+        return newGame;
+    }
+}
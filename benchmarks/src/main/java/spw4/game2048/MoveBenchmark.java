@@ -0,0 +1,63 @@
+package spw4.game2048;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class MoveBenchmark {
+
+    @Param({"up", "down", "left", "right"})
+    public Direction direction;
+
+    private BoardCorpus corpus;
+    private int next;
+
+    private GameImpl game;
+    private BitboardGame bitboardGame;
+
+    @Setup
+    public void setUp() {
+        corpus = new BoardCorpus();
+        RealTileRandom tileRandom = new RealTileRandom(BoardCorpus.SEED);
+        game = new GameImpl(tileRandom);
+        bitboardGame = new BitboardGame(tileRandom);
+    }
+
+    private int nextIndex() {
+        next = (next + 1) & (BoardCorpus.SIZE - 1);
+        return next;
+    }
+
+    // includes restoring a corpus board first, so every move starts from a fixed position
+    @Benchmark
+    public GameImpl move() {
+        int i = nextIndex();
+        game.restore(corpus.tiles[i], corpus.moves[i], corpus.scores[i]);
+        game.move(direction);
+        return game;
+    }
+
+    @Benchmark
+    public BitboardGame moveBitboard() {
+        int i = nextIndex();
+        bitboardGame.restore(corpus.boards[i], corpus.moves[i], corpus.scores[i]);
+        bitboardGame.move(direction);
+        return bitboardGame;
+    }
+}
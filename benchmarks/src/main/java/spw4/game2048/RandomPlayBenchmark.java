@@ -0,0 +1,54 @@
+package spw4.game2048;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// One complete game per operation, playing seeded random directions.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class RandomPlayBenchmark {
+
+    private static final Direction[] DIRECTIONS = Direction.values();
+
+    @Param({"GameImpl", "BitboardGame"})
+    public String engine;
+
+    private RealTileRandom tileRandom;
+    private Random directions;
+    private long seed;
+
+    @Setup
+    public void setUp() {
+        tileRandom = new RealTileRandom(BoardCorpus.SEED);
+        directions = new Random(BoardCorpus.SEED);
+    }
+
+    @Benchmark
+    public int playGame() {
+        tileRandom.setSeed(seed);
+        directions.setSeed(seed);
+        seed++;
+        Game game = "GameImpl".equals(engine) ? new GameImpl(tileRandom) : new BitboardGame(tileRandom);
+        game.initialize();
+        while (!game.isOver()) {
+            game.move(DIRECTIONS[directions.nextInt(DIRECTIONS.length)]);
+        }
+        return game.getScore();
+    }
+}
@@ -0,0 +1,54 @@
+package spw4.game2048;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class RenderBenchmark {
+
+    private final UUID id = new UUID(BoardCorpus.SEED, BoardCorpus.SEED);
+
+    private BoardCorpus corpus;
+    private GameImpl[] games;
+    private GameHtmlRenderer renderer;
+    private OutputStream out;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        corpus = new BoardCorpus();
+        games = new GameImpl[BoardCorpus.SIZE];
+        for (int i = 0; i < BoardCorpus.SIZE; i++) {
+            games[i] = new GameImpl();
+            games[i].restore(corpus.tiles[i], corpus.moves[i], corpus.scores[i]);
+        }
+        renderer = new GameHtmlRenderer();
+        out = OutputStream.nullOutputStream();
+    }
+
+    @Benchmark
+    public GameHtmlRenderer render() throws IOException {
+        next = (next + 1) & (BoardCorpus.SIZE - 1);
+        renderer.render(id, games[next], null);
+        renderer.writeTo(out);
+        return renderer;
+    }
+}
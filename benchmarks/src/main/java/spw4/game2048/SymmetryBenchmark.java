@@ -0,0 +1,52 @@
+package spw4.game2048;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+// Canonicalizing the corpus boards, whose tiles vary, so mispredicted branches would show.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class SymmetryBenchmark {
+
+    private BoardCorpus corpus;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        corpus = new BoardCorpus();
+    }
+
+    private long nextBoard() {
+        next = (next + 1) & (BoardCorpus.SIZE - 1);
+        return corpus.boards[next];
+    }
+
+    @Benchmark
+    public long canonical() {
+        return BoardSymmetry.canonical(nextBoard());
+    }
+
+    @Benchmark
+    public int canonicalSymmetry() {
+        return BoardSymmetry.canonicalSymmetry(nextBoard());
+    }
+
+    @Benchmark
+    public long hash() {
+        return BoardSymmetry.hash(nextBoard());
+    }
+}
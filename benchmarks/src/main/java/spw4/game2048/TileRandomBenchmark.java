@@ -0,0 +1,41 @@
+package spw4.game2048;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+// One spawn per operation: a position among 7 free tiles and a value.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class TileRandomBenchmark {
+
+    @Param({"RealTileRandom", "SplitMixTileRandom"})
+    public String generator;
+
+    private TileRandom tileRandom;
+
+    @Setup
+    public void setUp() {
+        tileRandom = "RealTileRandom".equals(generator)
+                ? new RealTileRandom(BoardCorpus.SEED) : new SplitMixTileRandom(BoardCorpus.SEED);
+    }
+
+    @Benchmark
+    public int spawn() {
+        return tileRandom.getRandomPosition(7) + tileRandom.getRandomValue();
+    }
+}
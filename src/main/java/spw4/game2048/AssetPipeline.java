@@ -0,0 +1,321 @@
+package spw4.game2048;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+
+// Builds the static files of the web app for production, run by the build before packaging:
+// - style sheets keep only the rules whose classes appear in index.jsp or on a page rendered by
+//   GameHtmlRenderer, other comments than licenses and source map links are dropped
+// - every file referenced from these pages or their style sheets is renamed to
+//   name.<first 10 hex digits of its SHA-256>.ext and the references point to the new names
+// - text files get a gzip variant next to them if that is smaller
+// - WEB-INF/assets.properties maps the original names to the fingerprinted ones
+// Files nothing references, like source maps and unminified bundles, are left out.
+public class AssetPipeline {
+
+    static final String MANIFEST = "WEB-INF/assets.properties";
+    // fingerprinted names change with their content, so caches never need to revalidate them
+    static final String IMMUTABLE = "public, max-age=31536000, immutable";
+    static final String REVALIDATE = "no-cache";
+
+    private static final Pattern FINGERPRINTED = Pattern.compile("\\.[0-9a-f]{10}\\.\\w+$");
+    // relative references without query, e.g. href="css/bootstrap.min.css"
+    private static final Pattern REFERENCE = Pattern.compile("(?:href|src)=\"([\\w./-]+)\"");
+    private static final Pattern URL = Pattern.compile("url\\(\\s*(['\"]?)([^'\")]+)\\1\\s*\\)");
+    private static final Pattern CLASS_ATTRIBUTE = Pattern.compile("class=\"([^\"]*)\"");
+    private static final Pattern CLASS_SELECTOR = Pattern.compile("\\.(-?[_a-zA-Z][\\w-]*)");
+    // attribute selectors and negations match without the classes they mention
+    private static final Pattern IGNORED_IN_SELECTOR = Pattern.compile("\\[[^\\]]*]|:not\\([^)]*\\)");
+    private static final Set<String> COMPRESSIBLE = Set.of("css", "js", "html", "svg", "json");
+
+    private final Path source;
+    private final Path target;
+    private final Set<String> usedClasses = new HashSet<>();
+    private final Map<String, String> fingerprinted = new TreeMap<>();
+
+    public AssetPipeline(Path source, Path target) {
+        this.source = source;
+        this.target = target;
+    }
+
+    // AssetPipeline <web app directory> <output directory>
+    public static void main(String[] args) throws IOException {
+        AssetPipeline pipeline = new AssetPipeline(Path.of(args[0]), Path.of(args[1]));
+        pipeline.build();
+        System.out.println("fingerprinted " + pipeline.getAssets().size() + " assets into " + args[1]);
+    }
+
+    public Map<String, String> getAssets() {
+        return fingerprinted;
+    }
+
+    public void build() throws IOException {
+        String index = Files.readString(source.resolve("index.jsp"));
+        List<String> pages = List.of(index, GameHtmlRenderer.markup());
+        for (String page : pages) {
+            Matcher matcher = CLASS_ATTRIBUTE.matcher(page);
+            while (matcher.find()) {
+                usedClasses.addAll(List.of(matcher.group(1).trim().split("\\s+")));
+            }
+        }
+        for (String page : pages) {
+            Matcher matcher = REFERENCE.matcher(page);
+            while (matcher.find()) {
+                if (Files.isRegularFile(source.resolve(matcher.group(1))))
+                    process(matcher.group(1));
+            }
+        }
+
+        Files.createDirectories(target);
+        Files.writeString(target.resolve("index.jsp"), rewrite(index, fingerprinted));
+        Properties manifest = new Properties();
+        manifest.putAll(fingerprinted);
+        Files.createDirectories(target.resolve(MANIFEST).getParent());
+        try (OutputStream out = Files.newOutputStream(target.resolve(MANIFEST))) {
+            manifest.store(out, "original and fingerprinted names of the static assets");
+        }
+    }
+
+    // replaces the quoted original names of assets by their fingerprinted ones
+    static String rewrite(String page, Map<String, String> assets) {
+        for (Map.Entry<String, String> asset : assets.entrySet()) {
+            page = page.replace("\"" + asset.getKey() + "\"", "\"" + asset.getValue() + "\"");
+        }
+        return page;
+    }
+
+    static Map<String, String> readManifest(InputStream in) throws IOException {
+        Properties manifest = new Properties();
+        manifest.load(in);
+        Map<String, String> assets = new HashMap<>();
+        manifest.stringPropertyNames().forEach(name -> assets.put(name, manifest.getProperty(name)));
+        return assets;
+    }
+
+    static boolean isFingerprinted(String path) {
+        return FINGERPRINTED.matcher(path).find();
+    }
+
+    static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null)
+            return false;
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parts = coding.trim().split("\\s*;\\s*");
+            if (parts[0].equalsIgnoreCase("gzip"))
+                return parts.length == 1 || !parts[1].matches("q=0(\\.0*)?");
+        }
+        return false;
+    }
+
+    // writes the fingerprinted file of an asset and those it references, returns its new name
+    private String process(String name) throws IOException {
+        String done = fingerprinted.get(name);
+        if (done != null)
+            return done;
+
+        String extension = name.substring(name.lastIndexOf('.') + 1);
+        byte[] content = Files.readAllBytes(source.resolve(name));
+        if (extension.equals("css"))
+            content = processStyleSheet(name, new String(content, StandardCharsets.UTF_8)).getBytes(StandardCharsets.UTF_8);
+
+        String renamed = name.substring(0, name.length() - extension.length()) + fingerprint(content) + "." + extension;
+        Path file = target.resolve(renamed);
+        Files.createDirectories(file.getParent());
+        Files.write(file, content);
+        if (COMPRESSIBLE.contains(extension)) {
+            byte[] compressed = gzip(content);
+            if (compressed.length < content.length)
+                Files.write(target.resolve(renamed + ".gz"), compressed);
+        }
+        fingerprinted.put(name, renamed);
+        return renamed;
+    }
+
+    private String processStyleSheet(String name, String css) throws IOException {
+        css = prune(css, usedClasses);
+        Path directory = Path.of(name).getParent();
+        StringBuilder rewritten = new StringBuilder();
+        Matcher matcher = URL.matcher(css);
+        while (matcher.find()) {
+            String url = matcher.group(2).trim();
+            String path = url.replaceFirst("[?#].*", "");
+            Path referenced = directory == null ? Path.of(path) : directory.resolve(path).normalize();
+            String replacement = matcher.group();
+            if (!url.contains(":") && Files.isRegularFile(source.resolve(referenced))) {
+                String renamed = process(referenced.toString().replace('\\', '/'));
+                Path relative = directory == null ? Path.of(renamed) : directory.relativize(Path.of(renamed));
+                replacement = "url(\"" + relative.toString().replace('\\', '/') + "\")";
+            }
+            matcher.appendReplacement(rewritten, Matcher.quoteReplacement(replacement));
+        }
+        matcher.appendTail(rewritten);
+        return rewritten.toString();
+    }
+
+    // the rules of a style sheet that can match an element with the given classes
+    static String prune(String css, Set<String> classes) {
+        StringBuilder out = new StringBuilder();
+        prune(css, 0, css.length(), classes, out);
+        return out.toString();
+    }
+
+    private static void prune(String css, int start, int end, Set<String> classes, StringBuilder out) {
+        int i = start;
+        while (i < end) {
+            char c = css.charAt(i);
+            if (Character.isWhitespace(c)) {
+                i++;
+            } else if (css.startsWith("/*", i)) {
+                int close = skipComment(css, i, end);
+                if (css.startsWith("/*!", i))
+                    out.append(css, i, close).append('\n');
+                i = close;
+            } else {
+                int brace = find(css, i, end);
+                if (brace == end || css.charAt(brace) == ';') {
+                    // a statement like @charset or @import
+                    int stop = Math.min(brace + 1, end);
+                    out.append(css, i, stop);
+                    i = stop;
+                    continue;
+                }
+                int close = findClose(css, brace + 1, end);
+                String prelude = css.substring(i, brace).trim();
+                if (prelude.startsWith("@media") || prelude.startsWith("@supports")) {
+                    StringBuilder inner = new StringBuilder();
+                    prune(css, brace + 1, close, classes, inner);
+                    if (inner.length() > 0)
+                        out.append(prelude).append('{').append(inner).append('}');
+                } else if (prelude.startsWith("@")) {
+                    // font faces, keyframes and pages are kept whole
+                    out.append(prelude).append(css, brace, close + 1);
+                } else {
+                    String selectors = keptSelectors(prelude, classes);
+                    if (!selectors.isEmpty())
+                        out.append(selectors).append(css, brace, close + 1);
+                }
+                i = close + 1;
+            }
+        }
+    }
+
+    private static String keptSelectors(String prelude, Set<String> classes) {
+        StringBuilder kept = new StringBuilder();
+        int depth = 0;
+        int start = 0;
+        for (int i = 0; i <= prelude.length(); i++) {
+            char c = i < prelude.length() ? prelude.charAt(i) : ',';
+            if (c == '(' || c == '[') {
+                depth++;
+            } else if (c == ')' || c == ']') {
+                depth--;
+            } else if (c == ',' && depth == 0) {
+                String selector = prelude.substring(start, i).trim();
+                if (matches(selector, classes))
+                    kept.append(kept.length() == 0 ? "" : ",").append(selector);
+                start = i + 1;
+            }
+        }
+        return kept.toString();
+    }
+
+    private static boolean matches(String selector, Set<String> classes) {
+        Matcher matcher = CLASS_SELECTOR.matcher(IGNORED_IN_SELECTOR.matcher(selector).replaceAll(""));
+        while (matcher.find()) {
+            if (!classes.contains(matcher.group(1)))
+                return false;
+        }
+        return true;
+    }
+
+    // the first '{' or ';' outside of strings and comments, end if there is none
+    private static int find(String css, int i, int end) {
+        while (i < end) {
+            char c = css.charAt(i);
+            if (c == '{' || c == ';')
+                return i;
+            i = skip(css, i, end);
+        }
+        return end;
+    }
+
+    // the '}' closing the block that starts at i
+    private static int findClose(String css, int i, int end) {
+        int depth = 0;
+        while (i < end) {
+            char c = css.charAt(i);
+            if (c == '{') {
+                depth++;
+            } else if (c == '}') {
+                if (depth == 0)
+                    return i;
+                depth--;
+            }
+            i = skip(css, i, end);
+        }
+        return end - 1;
+    }
+
+    // the index after the character, string or comment at i
+    private static int skip(String css, int i, int end) {
+        char c = css.charAt(i);
+        if (c == '"' || c == '\'') {
+            for (i++; i < end && css.charAt(i) != c; i++) {
+                if (css.charAt(i) == '\\')
+                    i++;
+            }
+            return i + 1;
+        }
+        if (css.startsWith("/*", i))
+            return skipComment(css, i, end);
+        return i + 1;
+    }
+
+    private static int skipComment(String css, int i, int end) {
+        int close = css.indexOf("*/", i + 2);
+        return close < 0 || close + 2 > end ? end : close + 2;
+    }
+
+    private static String fingerprint(byte[] content) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(content);
+            StringBuilder hex = new StringBuilder();
+            for (int i = 0; i < 5; i++) {
+                hex.append(String.format("%02x", digest[i]));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static byte[] gzip(byte[] content) throws IOException {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        try (GZIPOutputStream out = new GZIPOutputStream(compressed) {
+            {
+                def.setLevel(Deflater.BEST_COMPRESSION);
+            }
+        }) {
+            out.write(content);
+        }
+        return compressed.toByteArray();
+    }
+}
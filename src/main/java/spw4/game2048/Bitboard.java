@@ -0,0 +1,225 @@
+package spw4.game2048;
+
+// A 4x4 board packed into one long: the tile at (x, y) is stored as its log2 exponent
+// in the nibble at bit 4 * (4 * x + y), so row x occupies the 16 bits starting at 16 * x.
+final class Bitboard {
+
+    static final int MAX_EXPONENT = 15;
+
+    private static final long NIBBLE_LOW_BITS = 0x1111111111111111L;
+
+    // indexed by a 16-bit row, cell y of the row in nibble y
+    private static final char[] ROW_LEFT = new char[65536];
+    private static final char[] ROW_RIGHT = new char[65536];
+    // merges pair up equal neighbours within runs, so both directions score the same
+    private static final int[] ROW_SCORE = new int[65536];
+
+    static {
+        for (int row = 0; row < 65536; row++) {
+            int[] line = new int[4];
+            for (int i = 0; i < 4; i++) {
+                line[i] = (row >>> (4 * i)) & 0xF;
+            }
+            ROW_SCORE[row] = compress(line);
+            ROW_LEFT[row] = (char) pack(line);
+
+            for (int i = 0; i < 4; i++) {
+                line[3 - i] = (row >>> (4 * i)) & 0xF;
+            }
+            compress(line);
+            int right = 0;
+            for (int i = 0; i < 4; i++) {
+                right |= line[3 - i] << (4 * i);
+            }
+            ROW_RIGHT[row] = (char) right;
+        }
+    }
+
+    private Bitboard() {
+    }
+
+    // slides and merges the exponents towards index 0 and returns the gained score
+    private static int compress(int[] line) {
+        int score = 0;
+        int target = 0;
+        int last = 0;
+        for (int i = 0; i < line.length; i++) {
+            int value = line[i];
+            if (value == 0)
+                continue;
+            if (value == last && value < MAX_EXPONENT) {
+                line[target - 1] = value + 1;
+                score += 1 << (value + 1);
+                last = 0;
+            } else {
+                line[target++] = value;
+                last = value;
+            }
+        }
+        for (int i = target; i < line.length; i++) {
+            line[i] = 0;
+        }
+        return score;
+    }
+
+    private static int pack(int[] line) {
+        int row = 0;
+        for (int i = 0; i < 4; i++) {
+            row |= line[i] << (4 * i);
+        }
+        return row;
+    }
+
+    static long of(Game game) {
+        if (game instanceof BitboardGame)
+            return ((BitboardGame) game).getBoard();
+        if (game.getRows() != 4 || game.getColumns() != 4)
+            throw new IllegalArgumentException("only 4x4 boards fit into a bitboard");
+        long board = 0;
+        for (int x = 0; x < 4; x++) {
+            for (int y = 0; y < 4; y++) {
+                int exponent = exponentOf(game.getValueAt(x, y));
+                if (exponent > MAX_EXPONENT)
+                    throw new IllegalArgumentException("tiles above " + valueOf(MAX_EXPONENT) + " do not fit into a bitboard");
+                board = setExponent(board, x, y, exponent);
+            }
+        }
+        return board;
+    }
+
+    static int[][] toTiles(long board) {
+        int[][] tiles = new int[4][4];
+        for (int x = 0; x < 4; x++) {
+            for (int y = 0; y < 4; y++) {
+                tiles[x][y] = valueOf(getExponent(board, x, y));
+            }
+        }
+        return tiles;
+    }
+
+    static int exponentOf(int value) {
+        return value == 0 ? 0 : Integer.numberOfTrailingZeros(value);
+    }
+
+    static int valueOf(int exponent) {
+        return exponent == 0 ? 0 : 1 << exponent;
+    }
+
+    static int getExponent(long board, int x, int y) {
+        return (int) (board >>> (16 * x + 4 * y)) & 0xF;
+    }
+
+    static long setExponent(long board, int x, int y, int exponent) {
+        int shift = 16 * x + 4 * y;
+        return (board & ~(0xFL << shift)) | ((long) exponent << shift);
+    }
+
+    static long transpose(long board) {
+        long a1 = board & 0xF0F00F0FF0F00F0FL;
+        long a2 = board & 0x0000F0F00000F0F0L;
+        long a3 = board & 0x0F0F00000F0F0000L;
+        long a = a1 | (a2 << 12) | (a3 >>> 12);
+        long b1 = a & 0xFF00FF0000FF00FFL;
+        long b2 = a & 0x00FF00FF00000000L;
+        long b3 = a & 0x00000000FF00FF00L;
+        return b1 | (b2 >>> 24) | (b3 << 24);
+    }
+
+    static long moveLeft(long board) {
+        return (long) ROW_LEFT[(int) board & 0xFFFF]
+                | (long) ROW_LEFT[(int) (board >>> 16) & 0xFFFF] << 16
+                | (long) ROW_LEFT[(int) (board >>> 32) & 0xFFFF] << 32
+                | (long) ROW_LEFT[(int) (board >>> 48) & 0xFFFF] << 48;
+    }
+
+    static long moveRight(long board) {
+        return (long) ROW_RIGHT[(int) board & 0xFFFF]
+                | (long) ROW_RIGHT[(int) (board >>> 16) & 0xFFFF] << 16
+                | (long) ROW_RIGHT[(int) (board >>> 32) & 0xFFFF] << 32
+                | (long) ROW_RIGHT[(int) (board >>> 48) & 0xFFFF] << 48;
+    }
+
+    static long move(long board, Direction direction) {
+        switch (direction) {
+            case up:
+                return transpose(moveLeft(transpose(board)));
+            case down:
+                return transpose(moveRight(transpose(board)));
+            case left:
+                return moveLeft(board);
+            case right:
+                return moveRight(board);
+        }
+        throw new IllegalArgumentException("unknown direction: " + direction);
+    }
+
+    // the score gained by moving the given board in the given direction
+    static int score(long board, Direction direction) {
+        if (direction == Direction.up || direction == Direction.down)
+            board = transpose(board);
+        return ROW_SCORE[(int) board & 0xFFFF]
+                + ROW_SCORE[(int) (board >>> 16) & 0xFFFF]
+                + ROW_SCORE[(int) (board >>> 32) & 0xFFFF]
+                + ROW_SCORE[(int) (board >>> 48) & 0xFFFF];
+    }
+
+    // one bit set at the lowest bit of every empty nibble
+    static long emptyMask(long board) {
+        board |= board >>> 2;
+        board |= board >>> 1;
+        return ~board & NIBBLE_LOW_BITS;
+    }
+
+    static int countEmpty(long board) {
+        return Long.bitCount(emptyMask(board));
+    }
+
+    static boolean containsExponent(long board, int exponent) {
+        return emptyMask(board ^ (NIBBLE_LOW_BITS * exponent)) != 0;
+    }
+
+    static int maxExponent(long board) {
+        int max = 0;
+        for (; board != 0; board >>>= 4) {
+            max = Math.max(max, (int) board & 0xF);
+        }
+        return max;
+    }
+
+    // places the exponent into the n-th empty cell in row-major order
+    static long spawn(long board, int n, int exponent) {
+        long empty = emptyMask(board);
+        for (int i = 0; i < n; i++) {
+            empty &= empty - 1;
+        }
+        if (empty == 0)
+            return board;
+        return board | ((long) exponent << Long.numberOfTrailingZeros(empty));
+    }
+
+    // bit d.ordinal() is set if moving in direction d changes the board, from one pass over
+    // the rows and columns
+    static int legalMoves(long board) {
+        long transposed = transpose(board);
+        int legalMoves = 0;
+        for (int shift = 0; shift < 64; shift += 16) {
+            int row = (int) (board >>> shift) & 0xFFFF;
+            int column = (int) (transposed >>> shift) & 0xFFFF;
+            if (ROW_LEFT[row] != row)
+                legalMoves |= 1 << Direction.left.ordinal();
+            if (ROW_RIGHT[row] != row)
+                legalMoves |= 1 << Direction.right.ordinal();
+            if (ROW_LEFT[column] != column)
+                legalMoves |= 1 << Direction.up.ordinal();
+            if (ROW_RIGHT[column] != column)
+                legalMoves |= 1 << Direction.down.ordinal();
+        }
+        return legalMoves;
+    }
+
+    static boolean canMove(long board) {
+        if (emptyMask(board) != 0)
+            return true;
+        return moveLeft(board) != board || moveLeft(transpose(board)) != transpose(board);
+    }
+}
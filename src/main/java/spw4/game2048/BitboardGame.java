@@ -0,0 +1,107 @@
+package spw4.game2048;
+
+public class BitboardGame implements Game {
+
+    private final int winningExponent;
+
+    private long board;
+
+    private int moves;
+
+    private int score;
+
+    private TileRandom tileRandom;
+
+    public BitboardGame() {
+        this(new RealTileRandom());
+    }
+
+    public BitboardGame(TileRandom tileRandom) {
+        this(GameImpl.DEFAULT_WINNING_TILE, tileRandom);
+    }
+
+    public BitboardGame(int winningTile, TileRandom tileRandom) {
+        int maximumTile = Bitboard.valueOf(Bitboard.MAX_EXPONENT);
+        if (winningTile < 4 || winningTile > maximumTile || Integer.bitCount(winningTile) != 1)
+            throw new IllegalArgumentException("winningTile must be a power of two between 4 and " + maximumTile);
+        winningExponent = Bitboard.exponentOf(winningTile);
+        this.tileRandom = tileRandom;
+    }
+
+    // replaces the whole state, e.g. to replay stored boards
+    void restore(long board, int moves, int score) {
+        this.board = board;
+        this.moves = moves;
+        this.score = score;
+    }
+
+    public int getMoves() {
+        return moves;
+    }
+
+    public int getScore() {
+        return score;
+    }
+
+    long getBoard() {
+        return board;
+    }
+
+    public int getValueAt(int x, int y) {
+        return Bitboard.valueOf(Bitboard.getExponent(board, x, y));
+    }
+
+    public boolean isOver() {
+        return isWon() || !Bitboard.canMove(board);
+    }
+
+    public boolean isWon() {
+        return Bitboard.containsExponent(board, winningExponent);
+    }
+
+    public int getWinningTile() {
+        return Bitboard.valueOf(winningExponent);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("Moves: ").append(getMoves()).append("   ").
+                append("Score: ").append(getScore()).append("\n");
+        for (int x = 0; x < 4; x++) {
+            for (int y = 0; y < 4; y++) {
+                int value = getValueAt(x, y);
+                sb.append(value == 0 ? "." : value).append("     ");
+            }
+            sb.append("\n");
+        }
+        return sb.toString();
+    }
+
+    @Override
+    public int getLegalMoves() {
+        return Bitboard.legalMoves(board);
+    }
+
+    public boolean move(Direction direction) {
+        long moved = Bitboard.move(board, direction);
+        boolean changed = moved != board;
+        score += Bitboard.score(board, direction);
+        board = moved;
+        moves++;
+        if (Bitboard.countEmpty(board) != 0)
+            spawn();
+        return changed;
+    }
+
+    public void initialize() {
+        spawn();
+        spawn();
+    }
+
+    private void spawn() {
+        int position = tileRandom.getRandomPosition(Bitboard.countEmpty(board));
+        int value = tileRandom.getRandomValue();
+        board = Bitboard.spawn(board, position, Bitboard.exponentOf(value));
+    }
+}
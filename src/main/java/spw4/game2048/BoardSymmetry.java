@@ -0,0 +1,144 @@
+package spw4.game2048;
+
+// The 8 rotations and reflections of a 4x4 bitboard. Rotated and mirrored boards play the same,
+// so caches and analyses can store them once under the canonical board, the smallest of the 8
+// variants as unsigned long, and map moves between the variants with the symmetry found on the
+// way. Symmetry s transposes if bit 0 is set, then mirrors the columns if bit 1 is set, then the
+// rows if bit 2 is set. The variants are computed with shifts and masks, selected by conditional
+// moves and directions are mapped through tables, so nothing depends on the tiles of a board.
+final class BoardSymmetry {
+
+    static final int IDENTITY = 0;
+    static final int COUNT = 8;
+
+    private static final Direction[] DIRECTIONS = Direction.values();
+    // TRANSFORMED[s][d]: the move on the board transformed by s that has the effect of d on the
+    // original; transposing swaps up with left and down with right, mirroring the columns swaps
+    // left with right and mirroring the rows up with down
+    private static final Direction[][] TRANSFORMED = new Direction[COUNT][];
+    // RESTORED[s][d]: the inverse, the move on the original for the move d on the transformed board
+    private static final Direction[][] RESTORED = new Direction[COUNT][];
+
+    static {
+        for (int symmetry = 0; symmetry < COUNT; symmetry++) {
+            TRANSFORMED[symmetry] = new Direction[DIRECTIONS.length];
+            RESTORED[symmetry] = new Direction[DIRECTIONS.length];
+            for (Direction direction : DIRECTIONS) {
+                Direction transformed = direction;
+                if ((symmetry & 1) != 0)
+                    transformed = transposed(transformed);
+                if ((symmetry & 2) != 0)
+                    transformed = mirrored(transformed, Direction.left, Direction.right);
+                if ((symmetry & 4) != 0)
+                    transformed = mirrored(transformed, Direction.up, Direction.down);
+                TRANSFORMED[symmetry][direction.ordinal()] = transformed;
+                RESTORED[symmetry][transformed.ordinal()] = direction;
+            }
+        }
+    }
+
+    private BoardSymmetry() {
+    }
+
+    private static Direction transposed(Direction direction) {
+        switch (direction) {
+            case up:
+                return Direction.left;
+            case left:
+                return Direction.up;
+            case down:
+                return Direction.right;
+            default:
+                return Direction.down;
+        }
+    }
+
+    private static Direction mirrored(Direction direction, Direction first, Direction second) {
+        return direction == first ? second : direction == second ? first : direction;
+    }
+
+    static long transform(long board, int symmetry) {
+        long transposed = Bitboard.transpose(board);
+        board = (symmetry & 1) != 0 ? transposed : board;
+        long mirrored = mirrorColumns(board);
+        board = (symmetry & 2) != 0 ? mirrored : board;
+        mirrored = mirrorRows(board);
+        return (symmetry & 4) != 0 ? mirrored : board;
+    }
+
+    // the symmetry that turns the board into its canonical variant, the first one among equal variants
+    static int canonicalSymmetry(long board) {
+        long transposed = Bitboard.transpose(board);
+        long columns = mirrorColumns(board);
+        long transposedColumns = mirrorColumns(transposed);
+        int symmetry = 0;
+        long smallest = board;
+        long variant = transposed;
+        symmetry = Long.compareUnsigned(variant, smallest) < 0 ? 1 : symmetry;
+        smallest = min(smallest, variant);
+        symmetry = Long.compareUnsigned(columns, smallest) < 0 ? 2 : symmetry;
+        smallest = min(smallest, columns);
+        symmetry = Long.compareUnsigned(transposedColumns, smallest) < 0 ? 3 : symmetry;
+        smallest = min(smallest, transposedColumns);
+        variant = mirrorRows(board);
+        symmetry = Long.compareUnsigned(variant, smallest) < 0 ? 4 : symmetry;
+        smallest = min(smallest, variant);
+        variant = mirrorRows(transposed);
+        symmetry = Long.compareUnsigned(variant, smallest) < 0 ? 5 : symmetry;
+        smallest = min(smallest, variant);
+        variant = mirrorRows(columns);
+        symmetry = Long.compareUnsigned(variant, smallest) < 0 ? 6 : symmetry;
+        smallest = min(smallest, variant);
+        variant = mirrorRows(transposedColumns);
+        return Long.compareUnsigned(variant, smallest) < 0 ? 7 : symmetry;
+    }
+
+    static long canonical(long board) {
+        long transposed = Bitboard.transpose(board);
+        long columns = mirrorColumns(board);
+        long transposedColumns = mirrorColumns(transposed);
+        long smallest = min(min(board, transposed), min(columns, transposedColumns));
+        smallest = min(smallest, min(mirrorRows(board), mirrorRows(transposed)));
+        return min(smallest, min(mirrorRows(columns), mirrorRows(transposedColumns)));
+    }
+
+    // the move on the board transformed by the symmetry with the same effect as the given one
+    static Direction transform(Direction direction, int symmetry) {
+        return TRANSFORMED[symmetry][direction.ordinal()];
+    }
+
+    // the move on the original board with the same effect as the given one on the transformed board
+    static Direction restore(Direction direction, int symmetry) {
+        return RESTORED[symmetry][direction.ordinal()];
+    }
+
+    // equal for all variants of a board, the bits are mixed so any subset of them indexes a table
+    static long hash(long board) {
+        return mix(canonical(board));
+    }
+
+    static long hash(Game game) {
+        return hash(Bitboard.of(game));
+    }
+
+    // the finalizer of MurmurHash3, every input bit affects every output bit
+    static long mix(long value) {
+        value = (value ^ (value >>> 33)) * 0xFF51AFD7ED558CCDL;
+        value = (value ^ (value >>> 33)) * 0xC4CEB9FE1A85EC53L;
+        return value ^ (value >>> 33);
+    }
+
+    private static long min(long a, long b) {
+        // flipping the sign bit orders unsigned values like signed ones
+        return Math.min(a ^ Long.MIN_VALUE, b ^ Long.MIN_VALUE) ^ Long.MIN_VALUE;
+    }
+
+    static long mirrorColumns(long board) {
+        long swapped = (board & 0x0F0F0F0F0F0F0F0FL) << 4 | (board >>> 4) & 0x0F0F0F0F0F0F0F0FL;
+        return (swapped & 0x00FF00FF00FF00FFL) << 8 | (swapped >>> 8) & 0x00FF00FF00FF00FFL;
+    }
+
+    static long mirrorRows(long board) {
+        return board >>> 48 | (board >>> 16) & 0xFFFF0000L | (board << 16) & 0xFFFF00000000L | board << 48;
+    }
+}
@@ -0,0 +1,195 @@
+package spw4.game2048;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
+import java.util.function.LongSupplier;
+
+// A size- and idle-bounded store. Games are spread over independently locked shards, each
+// kept in access order, so eviction is LRU per shard. Finished games near the LRU end are
+// evicted before unfinished ones.
+public class BoundedGameStore implements GameStore {
+
+    private static final int FINISHED_SCAN_LIMIT = 8;
+
+    private final Shard[] shards;
+    private final int shardMask;
+    private final int maximumShardSize;
+    private final long idleTimeoutNanos;
+    private final LongSupplier nanoClock;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private volatile BiConsumer<UUID, Game> evictionListener = (id, game) -> { };
+
+    public BoundedGameStore(int maximumSize, long idleTimeout, TimeUnit unit) {
+        this(maximumSize, idleTimeout, unit,
+                Math.min(maximumSize, 4 * Runtime.getRuntime().availableProcessors()), System::nanoTime);
+    }
+
+    BoundedGameStore(int maximumSize, long idleTimeout, TimeUnit unit, int shardCount, LongSupplier nanoClock) {
+        if (maximumSize <= 0)
+            throw new IllegalArgumentException("maximumSize must be positive");
+
+        shardCount = Integer.highestOneBit(Math.max(1, shardCount));
+        shards = new Shard[shardCount];
+        for (int i = 0; i < shardCount; i++) {
+            shards[i] = new Shard();
+        }
+        shardMask = shardCount - 1;
+        maximumShardSize = (maximumSize + shardCount - 1) / shardCount;
+        idleTimeoutNanos = unit.toNanos(idleTimeout);
+        this.nanoClock = nanoClock;
+    }
+
+    @Override
+    public Game get(UUID id) {
+        Shard shard = shardOf(id);
+        long now = nanoClock.getAsLong();
+        synchronized (shard) {
+            Entry entry = shard.entries.get(id);
+            if (entry != null && isExpired(entry, now)) {
+                shard.entries.remove(id);
+                evicted(id, entry, true, now);
+                entry = null;
+            }
+            if (entry == null) {
+                misses.increment();
+                return null;
+            }
+            entry.lastAccess = now;
+            hits.increment();
+            return entry.game;
+        }
+    }
+
+    @Override
+    public void put(UUID id, Game game) {
+        Shard shard = shardOf(id);
+        long now = nanoClock.getAsLong();
+        synchronized (shard) {
+            shard.entries.put(id, new Entry(game, now));
+            expire(shard, now);
+            while (shard.entries.size() > maximumShardSize) {
+                evictOne(shard, now);
+            }
+        }
+    }
+
+    @Override
+    public void remove(UUID id) {
+        Shard shard = shardOf(id);
+        synchronized (shard) {
+            shard.entries.remove(id);
+        }
+    }
+
+    @Override
+    public int size() {
+        int size = 0;
+        for (Shard shard : shards) {
+            synchronized (shard) {
+                size += shard.entries.size();
+            }
+        }
+        return size;
+    }
+
+    // evicts all idle games, meant to run periodically; gets and puts only expire the games of the
+    // shard they touch
+    public void cleanUp() {
+        long now = nanoClock.getAsLong();
+        for (Shard shard : shards) {
+            synchronized (shard) {
+                expire(shard, now);
+            }
+        }
+    }
+
+    // called for every idle or size eviction while the shard is locked, so it must be quick;
+    // explicit removes are not reported
+    public void setEvictionListener(BiConsumer<UUID, Game> evictionListener) {
+        this.evictionListener = evictionListener;
+    }
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    public long getEvictionCount() {
+        return evictions.sum();
+    }
+
+    private Shard shardOf(UUID id) {
+        int hash = id.hashCode();
+        return shards[(hash ^ (hash >>> 16)) & shardMask];
+    }
+
+    private boolean isExpired(Entry entry, long now) {
+        return now - entry.lastAccess >= idleTimeoutNanos;
+    }
+
+    // entries are in access order, so the idle ones are at the head
+    private void expire(Shard shard, long now) {
+        Iterator<Map.Entry<UUID, Entry>> iterator = shard.entries.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<UUID, Entry> entry = iterator.next();
+            if (!isExpired(entry.getValue(), now))
+                return;
+            iterator.remove();
+            evicted(entry.getKey(), entry.getValue(), true, now);
+        }
+    }
+
+    private void evictOne(Shard shard, long now) {
+        Iterator<Map.Entry<UUID, Entry>> iterator = shard.entries.entrySet().iterator();
+        UUID victim = null;
+        for (int i = 0; i < FINISHED_SCAN_LIMIT && iterator.hasNext(); i++) {
+            Map.Entry<UUID, Entry> candidate = iterator.next();
+            if (victim == null)
+                victim = candidate.getKey();
+            // a racy read is fine here, a stale answer only affects which game goes first
+            if (candidate.getValue().game.isOver()) {
+                victim = candidate.getKey();
+                break;
+            }
+        }
+        evicted(victim, shard.entries.remove(victim), false, now);
+    }
+
+    private void evicted(UUID id, Entry entry, boolean idle, long now) {
+        evictions.increment();
+        FlightEvents.GameEvicted event = new FlightEvents.GameEvicted();
+        if (event.shouldCommit()) {
+            event.idle = idle;
+            event.idleTime = now - entry.lastAccess;
+            event.finished = entry.game.isOver();
+            event.moves = entry.game.getMoves();
+            event.commit();
+        }
+        evictionListener.accept(id, entry.game);
+    }
+
+    private static final class Shard {
+        final LinkedHashMap<UUID, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    }
+
+    private static final class Entry {
+        final Game game;
+        long lastAccess;
+
+        Entry(Game game, long lastAccess) {
+            this.game = game;
+            this.lastAccess = lastAccess;
+        }
+    }
+}
@@ -0,0 +1,248 @@
+package spw4.game2048;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.TimeUnit;
+
+// Depth-limited expectimax over the default spawn distribution, a 4 in 1 of 10 spawns. The four
+// root moves are searched in parallel and the depth is deepened iteratively until the time budget
+// is spent; the answer of the deepest completed iteration wins.
+public class ExpectimaxSolver implements Solver {
+
+    private static final Direction[] DIRECTIONS = Direction.values();
+
+    private static final double PROBABILITY_OF_FOUR = 1.0 / RealTileRandom.FOUR_ODDS;
+    private static final double PROBABILITY_CUTOFF = 0.0001;
+    private static final int DEFAULT_MAX_DEPTH = 8;
+    private static final int DEADLINE_CHECK_INTERVAL = 1024;
+    private static final int TABLE_LOG2_CAPACITY = 18;
+
+    private static final float SCORE_LOST_PENALTY = 200000.0f;
+    private static final float MONOTONICITY_POWER = 4.0f;
+    private static final float MONOTONICITY_WEIGHT = 47.0f;
+    private static final float SUM_POWER = 3.5f;
+    private static final float SUM_WEIGHT = 11.0f;
+    private static final float MERGES_WEIGHT = 700.0f;
+    private static final float EMPTY_WEIGHT = 270.0f;
+
+    private static final float[] ROW_HEURISTIC = new float[65536];
+
+    static {
+        for (int row = 0; row < 65536; row++) {
+            int[] line = new int[4];
+            for (int i = 0; i < 4; i++) {
+                line[i] = (row >>> (4 * i)) & 0xF;
+            }
+
+            float sum = 0;
+            int empty = 0;
+            int merges = 0;
+            int previous = 0;
+            int counter = 0;
+            for (int rank : line) {
+                sum += Math.pow(rank, SUM_POWER);
+                if (rank == 0) {
+                    empty++;
+                } else {
+                    if (previous == rank) {
+                        counter++;
+                    } else if (counter > 0) {
+                        merges += 1 + counter;
+                        counter = 0;
+                    }
+                    previous = rank;
+                }
+            }
+            if (counter > 0)
+                merges += 1 + counter;
+
+            float monotonicityLeft = 0;
+            float monotonicityRight = 0;
+            for (int i = 1; i < 4; i++) {
+                float difference = (float) (Math.pow(line[i - 1], MONOTONICITY_POWER) - Math.pow(line[i], MONOTONICITY_POWER));
+                if (difference > 0)
+                    monotonicityLeft += difference;
+                else
+                    monotonicityRight -= difference;
+            }
+
+            ROW_HEURISTIC[row] = SCORE_LOST_PENALTY + EMPTY_WEIGHT * empty + MERGES_WEIGHT * merges
+                    - MONOTONICITY_WEIGHT * Math.min(monotonicityLeft, monotonicityRight) - SUM_WEIGHT * sum;
+        }
+    }
+
+    private final long timeBudgetNanos;
+    private final int maxDepth;
+    private final ForkJoinPool pool;
+    private final ThreadLocal<TranspositionTable> tables =
+            ThreadLocal.withInitial(() -> new TranspositionTable(TABLE_LOG2_CAPACITY));
+
+    public ExpectimaxSolver() {
+        this(10, TimeUnit.MILLISECONDS);
+    }
+
+    public ExpectimaxSolver(long timeBudget, TimeUnit unit) {
+        this(timeBudget, unit, DEFAULT_MAX_DEPTH, ForkJoinPool.commonPool());
+    }
+
+    public ExpectimaxSolver(long timeBudget, TimeUnit unit, int maxDepth, ForkJoinPool pool) {
+        if (maxDepth < 1)
+            throw new IllegalArgumentException("maxDepth must be at least 1");
+        this.timeBudgetNanos = unit.toNanos(timeBudget);
+        this.maxDepth = maxDepth;
+        this.pool = pool;
+    }
+
+    @Override
+    public Direction findBestMove(Game game) {
+        return findBestMove(Bitboard.of(game));
+    }
+
+    Direction findBestMove(long board) {
+        Analysis analysis = analyze(board);
+        return analysis == null ? null : analysis.direction;
+    }
+
+    // the best move of the deepest completed iteration and its value, null if no move changes the board
+    Analysis analyze(long board) {
+        Search search = new Search(System.nanoTime() + timeBudgetNanos);
+        Analysis analysis = null;
+
+        for (int depth = 1; depth <= maxDepth; depth++) {
+            List<RootTask> tasks = new ArrayList<>(4);
+            for (Direction direction : DIRECTIONS) {
+                long moved = Bitboard.move(board, direction);
+                if (moved != board)
+                    tasks.add(new RootTask(search, direction, moved, depth));
+            }
+            if (tasks.isEmpty())
+                return null;
+
+            for (RootTask task : tasks) {
+                pool.execute(task);
+            }
+            RootTask best = null;
+            for (RootTask task : tasks) {
+                task.join();
+                if (best == null || task.value > best.value)
+                    best = task;
+            }
+
+            // an interrupted iteration is only trusted if there is nothing better
+            if (search.aborted && analysis != null)
+                break;
+            analysis = new Analysis(best.direction, best.value);
+            if (search.aborted)
+                break;
+        }
+        return analysis;
+    }
+
+    static float evaluate(long board) {
+        long transposed = Bitboard.transpose(board);
+        return ROW_HEURISTIC[(int) board & 0xFFFF]
+                + ROW_HEURISTIC[(int) (board >>> 16) & 0xFFFF]
+                + ROW_HEURISTIC[(int) (board >>> 32) & 0xFFFF]
+                + ROW_HEURISTIC[(int) (board >>> 48) & 0xFFFF]
+                + ROW_HEURISTIC[(int) transposed & 0xFFFF]
+                + ROW_HEURISTIC[(int) (transposed >>> 16) & 0xFFFF]
+                + ROW_HEURISTIC[(int) (transposed >>> 32) & 0xFFFF]
+                + ROW_HEURISTIC[(int) (transposed >>> 48) & 0xFFFF];
+    }
+
+    static final class Analysis {
+        final Direction direction;
+        // the expected heuristic value after the move, see evaluate
+        final float value;
+
+        Analysis(Direction direction, float value) {
+            this.direction = direction;
+            this.value = value;
+        }
+    }
+
+    private static final class Search {
+        final long deadline;
+        volatile boolean aborted;
+
+        Search(long deadline) {
+            this.deadline = deadline;
+        }
+    }
+
+    private final class RootTask extends RecursiveTask<Void> {
+        final Search search;
+        final Direction direction;
+        final long board;
+        final int depth;
+        float value;
+
+        private TranspositionTable table;
+        private int nodes;
+
+        RootTask(Search search, Direction direction, long board, int depth) {
+            this.search = search;
+            this.direction = direction;
+            this.board = board;
+            this.depth = depth;
+        }
+
+        @Override
+        protected Void compute() {
+            // a fresh table per root move keeps results independent of thread scheduling
+            table = tables.get();
+            table.clear();
+            value = chanceNode(board, depth, 1.0);
+            return null;
+        }
+
+        private float maxNode(long board, int depth, double probability) {
+            float best = 0;
+            for (Direction direction : DIRECTIONS) {
+                long moved = Bitboard.move(board, direction);
+                if (moved != board)
+                    best = Math.max(best, chanceNode(moved, depth, probability));
+            }
+            return best;
+        }
+
+        // a board that was just moved always has at least one empty cell
+        private float chanceNode(long board, int depth, double probability) {
+            if (depth == 0 || probability < PROBABILITY_CUTOFF)
+                return evaluate(board);
+            if (isTimeUp())
+                return 0;
+
+            float cached = table.get(board, depth);
+            if (!Float.isNaN(cached))
+                return cached;
+
+            long empty = Bitboard.emptyMask(board);
+            int count = Long.bitCount(empty);
+            double probabilityOfTwo = probability * (1 - PROBABILITY_OF_FOUR) / count;
+            double probabilityOfFour = probability * PROBABILITY_OF_FOUR / count;
+            double sum = 0;
+            for (; empty != 0; empty &= empty - 1) {
+                int shift = Long.numberOfTrailingZeros(empty);
+                sum += (1 - PROBABILITY_OF_FOUR) * maxNode(board | (1L << shift), depth - 1, probabilityOfTwo);
+                sum += PROBABILITY_OF_FOUR * maxNode(board | (2L << shift), depth - 1, probabilityOfFour);
+            }
+            float value = (float) (sum / count);
+
+            // values computed after an abort are incomplete and must not be cached
+            if (!search.aborted)
+                table.put(board, depth, value);
+            return value;
+        }
+
+        private boolean isTimeUp() {
+            if (search.aborted)
+                return true;
+            if (++nodes % DEADLINE_CHECK_INTERVAL == 0 && System.nanoTime() - search.deadline > 0)
+                search.aborted = true;
+            return search.aborted;
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package spw4.game2048;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+// Java Flight Recorder events of the game, off unless a recording enables them, e.g. with
+// -XX:StartFlightRecording:settings=default,settings=game2048.jfc using the file in the resources.
+// While off, the JIT removes creating an event and shouldCommit() is a field read, so the
+// instrumented code pays next to nothing. Ids of games are not recorded, knowing one means being
+// able to play it.
+final class FlightEvents {
+
+    private static final String CATEGORY = "2048";
+
+    private FlightEvents() {
+    }
+
+    @Name("spw4.game2048.GameCreated")
+    @Label("Game Created")
+    @Category(CATEGORY)
+    @Enabled(false)
+    @StackTrace(false)
+    static final class GameCreated extends Event {
+        @Label("Rows")
+        int rows;
+
+        @Label("Columns")
+        int columns;
+
+        @Label("Winning Tile")
+        int winningTile;
+    }
+
+    @Name("spw4.game2048.Move")
+    @Label("Move")
+    @Description("A move played on a game, from sliding the tiles to spawning the next one")
+    @Category(CATEGORY)
+    @Enabled(false)
+    @StackTrace(false)
+    static final class Move extends Event {
+        @Label("Direction")
+        String direction;
+
+        @Label("Changed")
+        @Description("Whether any tile moved, otherwise only a new tile was spawned if at all")
+        boolean changed;
+
+        @Label("Score Delta")
+        int scoreDelta;
+
+        @Label("Tiles Merged")
+        @Description("Pairs of equal tiles merged by the move")
+        int tilesMerged;
+
+        @Label("Moves")
+        int moves;
+    }
+
+    @Name("spw4.game2048.GameOver")
+    @Label("Game Over")
+    @Category(CATEGORY)
+    @Enabled(false)
+    @StackTrace(false)
+    static final class GameOver extends Event {
+        @Label("Won")
+        boolean won;
+
+        @Label("Score")
+        int score;
+
+        @Label("Moves")
+        int moves;
+
+        @Label("Max Tile")
+        int maxTile;
+    }
+
+    @Name("spw4.game2048.GameEvicted")
+    @Label("Game Evicted")
+    @Description("A game dropped by the game store, idle for too long or to make room")
+    @Category(CATEGORY)
+    @Enabled(false)
+    @StackTrace(false)
+    static final class GameEvicted extends Event {
+        @Label("Idle")
+        @Description("Whether the game timed out, otherwise the store was full")
+        boolean idle;
+
+        @Label("Idle Time")
+        @Description("Since the game was last accessed")
+        @Timespan(Timespan.NANOSECONDS)
+        long idleTime;
+
+        @Label("Finished")
+        boolean finished;
+
+        @Label("Moves")
+        int moves;
+    }
+
+    @Name("spw4.game2048.Request")
+    @Label("Game Request")
+    @Description("A request to the game API from receiving it to writing the response")
+    @Category(CATEGORY)
+    @Enabled(false)
+    @StackTrace(false)
+    static final class Request extends Event {
+        @Label("Action")
+        String action;
+    }
+}
@@ -2,10 +2,51 @@ package spw4.game2048;
 
 public interface Game {
     void initialize();
-    void move(Direction direction);
+    // returns whether the tiles moved; a move that changes nothing still counts and spawns a tile
+    boolean move(Direction direction);
     int getMoves();
     int getScore();
     int getValueAt(int x, int y);
     boolean isOver();
     boolean isWon();
+
+    // x ranges over the rows, y over the columns
+    default int getRows() {
+        return 4;
+    }
+
+    default int getColumns() {
+        return 4;
+    }
+
+    // the game is won once a tile reaches it
+    default int getWinningTile() {
+        return 2048;
+    }
+
+    // bit d.ordinal() is set if moving in direction d changes the board
+    default int getLegalMoves() {
+        // a tile can move towards an empty neighbour or merge with an equal one
+        int legalMoves = 0;
+        for (int x = 0; x < getRows(); x++) {
+            for (int y = 0; y < getColumns(); y++) {
+                int value = getValueAt(x, y);
+                if (y + 1 < getColumns()) {
+                    int right = getValueAt(x, y + 1);
+                    if (value == 0 ? right != 0 : value == right)
+                        legalMoves |= 1 << Direction.left.ordinal();
+                    if (right == 0 ? value != 0 : value == right)
+                        legalMoves |= 1 << Direction.right.ordinal();
+                }
+                if (x + 1 < getRows()) {
+                    int below = getValueAt(x + 1, y);
+                    if (value == 0 ? below != 0 : value == below)
+                        legalMoves |= 1 << Direction.up.ordinal();
+                    if (below == 0 ? value != 0 : value == below)
+                        legalMoves |= 1 << Direction.down.ordinal();
+                }
+            }
+        }
+        return legalMoves;
+    }
 }
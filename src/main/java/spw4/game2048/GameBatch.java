@@ -0,0 +1,205 @@
+package spw4.game2048;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
+// Steps many 4x4 games at once, e.g. for simulations and reinforcement learning. The games are
+// kept as parallel primitive arrays of bitboards, scores, move counts and generator states, and
+// every step applies one direction per game and leaves the rewards, done flags and legal-move
+// masks in arrays that are reused for the next step, so stepping does not allocate. Large
+// batches are split into fixed chunks on a fork-join pool. Game i of episode e plays the tiles
+// of SplitMixTileRandom.forStream(baseSeed, e * size + i), like a BitboardGame on that stream.
+// Not thread-safe, one thread steps a batch at a time.
+public class GameBatch {
+
+    private static final int WINNING_EXPONENT = 11;
+    private static final int DEFAULT_CHUNK_SIZE = 4096;
+    private static final Direction[] DIRECTIONS = Direction.values();
+
+    private final int size;
+    private final long baseSeed;
+    private final ForkJoinPool pool;
+
+    private final long[] boards;
+    private final int[] scores;
+    private final int[] moves;
+    private final long[] tileRandomStates;
+    private final int[] episodes;
+    private final int[] rewards;
+    private final boolean[] done;
+    private final byte[] legalMoves;
+
+    private final Chunk[] chunks;
+    private final RecursiveAction stepAll = new RecursiveAction() {
+        @Override
+        protected void compute() {
+            ForkJoinTask.invokeAll(chunks);
+        }
+    };
+    private byte[] directions;
+
+    public GameBatch(int size, long baseSeed) {
+        this(size, baseSeed, ForkJoinPool.commonPool(), DEFAULT_CHUNK_SIZE);
+    }
+
+    GameBatch(int size, long baseSeed, ForkJoinPool pool, int chunkSize) {
+        if (size <= 0 || chunkSize <= 0)
+            throw new IllegalArgumentException("size and chunkSize must be positive");
+        this.size = size;
+        this.baseSeed = baseSeed;
+        this.pool = pool;
+        boards = new long[size];
+        scores = new int[size];
+        moves = new int[size];
+        tileRandomStates = new long[size];
+        episodes = new int[size];
+        rewards = new int[size];
+        done = new boolean[size];
+        legalMoves = new byte[size];
+
+        int chunkCount = (size + chunkSize - 1) / chunkSize;
+        chunks = new Chunk[chunkCount];
+        for (int i = 0; i < chunkCount; i++) {
+            chunks[i] = new Chunk(i * chunkSize, Math.min(size, (i + 1) * chunkSize));
+        }
+
+        SplitMixTileRandom tileRandom = new SplitMixTileRandom(0);
+        for (int game = 0; game < size; game++) {
+            start(game, tileRandom);
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    // starts the next episode of the game, its reward, done flag and legal moves describe the
+    // new game until the next step
+    public void reset(int game) {
+        episodes[game]++;
+        start(game, chunks[game / chunks[0].size()].tileRandom);
+    }
+
+    // directions[i] is the ordinal of the direction for game i; finished games ignore theirs
+    // and get a reward of 0 until they are reset
+    public void step(byte[] directions) {
+        if (directions.length < size)
+            throw new IllegalArgumentException("one direction per game needed");
+        this.directions = directions;
+        if (chunks.length == 1 || pool.getParallelism() == 1) {
+            for (Chunk chunk : chunks) {
+                chunk.step();
+            }
+        } else {
+            stepAll.reinitialize();
+            for (Chunk chunk : chunks) {
+                chunk.reinitialize();
+            }
+            pool.invoke(stepAll);
+        }
+        this.directions = null;
+    }
+
+    // the score gained by every game in the last step
+    public int[] getRewards() {
+        return rewards;
+    }
+
+    public boolean[] getDone() {
+        return done;
+    }
+
+    // bit d.ordinal() of element i is set if moving game i in direction d changes its board
+    public byte[] getLegalMoves() {
+        return legalMoves;
+    }
+
+    public int getScore(int game) {
+        return scores[game];
+    }
+
+    public int getMoves(int game) {
+        return moves[game];
+    }
+
+    public int getValueAt(int game, int x, int y) {
+        return Bitboard.valueOf(Bitboard.getExponent(boards[game], x, y));
+    }
+
+    long getBoard(int game) {
+        return boards[game];
+    }
+
+    private void start(int game, SplitMixTileRandom tileRandom) {
+        tileRandom.setState(SplitMixTileRandom.streamState(baseSeed, (long) episodes[game] * size + game));
+        long board = spawn(spawn(0, tileRandom), tileRandom);
+        tileRandomStates[game] = tileRandom.getState();
+        boards[game] = board;
+        scores[game] = 0;
+        moves[game] = 0;
+        rewards[game] = 0;
+        finish(game, board);
+    }
+
+    // the same rules as BitboardGame.move
+    private void step(int game, SplitMixTileRandom tileRandom) {
+        if (done[game]) {
+            rewards[game] = 0;
+            return;
+        }
+        long board = boards[game];
+        Direction direction = DIRECTIONS[directions[game]];
+        int reward = Bitboard.score(board, direction);
+        board = Bitboard.move(board, direction);
+        if (Bitboard.countEmpty(board) != 0) {
+            tileRandom.setState(tileRandomStates[game]);
+            board = spawn(board, tileRandom);
+            tileRandomStates[game] = tileRandom.getState();
+        }
+        boards[game] = board;
+        scores[game] += reward;
+        moves[game]++;
+        rewards[game] = reward;
+        finish(game, board);
+    }
+
+    private void finish(int game, long board) {
+        int legal = Bitboard.legalMoves(board);
+        legalMoves[game] = (byte) legal;
+        done[game] = legal == 0 || Bitboard.containsExponent(board, WINNING_EXPONENT);
+    }
+
+    private static long spawn(long board, TileRandom tileRandom) {
+        int position = tileRandom.getRandomPosition(Bitboard.countEmpty(board));
+        int value = tileRandom.getRandomValue();
+        return Bitboard.spawn(board, position, Bitboard.exponentOf(value));
+    }
+
+    // a fixed range of games with its own generator, reused for every step
+    private final class Chunk extends RecursiveAction {
+        final int from;
+        final int to;
+        final SplitMixTileRandom tileRandom = new SplitMixTileRandom(0);
+
+        Chunk(int from, int to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        int size() {
+            return to - from;
+        }
+
+        @Override
+        protected void compute() {
+            step();
+        }
+
+        void step() {
+            for (int game = from; game < to; game++) {
+                GameBatch.this.step(game, tileRandom);
+            }
+        }
+    }
+}
@@ -0,0 +1,217 @@
+package spw4.game2048;
+
+import java.io.Closeable;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// Pushes the state of watched games to their players and spectators as server-sent events:
+//
+//   event: state
+//   data: {"moves":0,"score":0,"over":false,"won":false,"rows":4,"columns":4,"board":[1,0,...]}
+//
+//   event: delta
+//   data: {"moves":1,"score":4,"over":false,"won":false,"changed":[0,2,5,1]}
+//
+// A new subscriber first gets the whole state, after that every change only sends the changed
+// cells as pairs of row-major index and exponent. Events are handed out by a few delivery threads,
+// each owning the games that hash to it, so events of a game stay in order, moves never wait
+// for clients and idle connections hold no thread. Subscribers only queue events, see
+// QueuedSubscriber, so a slow client never holds up the other games of its delivery thread.
+// Subscribers whose connection is gone or too far behind are dropped, a comment line every ping
+// interval finds the dead ones among idle connections.
+class GameEventHub implements Closeable {
+
+    static final long DEFAULT_PING_SECONDS = 30;
+
+    // the server side of one event stream
+    interface Subscriber {
+        // queues one event without blocking, false if the connection is gone or too far behind
+        boolean send(byte[] event);
+
+        void close();
+    }
+
+    // Queues events and writes them whenever the connection takes them. A client that falls
+    // MAX_BACKLOG events behind is dropped instead of being sent coalesced deltas, its EventSource
+    // reconnects and starts over with the whole state.
+    abstract static class QueuedSubscriber implements Subscriber {
+        static final int MAX_BACKLOG = 64;
+
+        // guarded by this
+        private final ArrayDeque<byte[]> backlog = new ArrayDeque<>();
+        private boolean closed;
+
+        @Override
+        public final boolean send(byte[] event) {
+            synchronized (this) {
+                if (closed || backlog.size() >= MAX_BACKLOG)
+                    return false;
+                backlog.add(event);
+            }
+            write();
+            return true;
+        }
+
+        @Override
+        public final void close() {
+            synchronized (this) {
+                if (closed)
+                    return;
+                closed = true;
+                backlog.clear();
+            }
+            disconnect();
+        }
+
+        // the oldest queued event, null if there is none
+        protected final synchronized byte[] poll() {
+            return backlog.poll();
+        }
+
+        protected final synchronized boolean isClosed() {
+            return closed;
+        }
+
+        // writes queued events as far as the connection takes them, without blocking the caller
+        protected abstract void write();
+
+        // ends the response, without blocking the caller
+        protected abstract void disconnect();
+    }
+
+    private static final byte[] PING = bytes(":\n\n");
+
+    private final ConcurrentHashMap<UUID, Channel> channels = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService[] deliveries;
+
+    GameEventHub() {
+        this(Math.max(1, Runtime.getRuntime().availableProcessors() / 2), DEFAULT_PING_SECONDS, TimeUnit.SECONDS);
+    }
+
+    GameEventHub(int deliveryThreads, long pingInterval, TimeUnit unit) {
+        deliveries = new ScheduledExecutorService[deliveryThreads];
+        for (int i = 0; i < deliveryThreads; i++) {
+            int partition = i;
+            deliveries[i] = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "game-events-" + partition);
+                thread.setDaemon(true);
+                return thread;
+            });
+            deliveries[i].scheduleWithFixedDelay(() -> ping(partition), pingInterval, pingInterval, unit);
+        }
+    }
+
+    private static byte[] bytes(String s) {
+        return s.getBytes(StandardCharsets.UTF_8);
+    }
+
+    // the caller must hold the lock of the game, like for moves
+    void subscribe(UUID id, Game game, Subscriber subscriber) {
+        StringBuilder data = new StringBuilder("event: state\ndata: ");
+        appendStatus(data, game).append(",\"rows\":").append(game.getRows())
+                .append(",\"columns\":").append(game.getColumns()).append(",\"board\":[");
+        int[] board = exponents(game);
+        for (int i = 0; i < board.length; i++) {
+            data.append(i == 0 ? "" : ",").append(board[i]);
+        }
+        // added atomically with respect to the removal of channels nobody watches
+        Channel channel = channels.compute(id, (key, existing) -> {
+            Channel added = existing != null ? existing : new Channel();
+            added.board = board;
+            added.subscribers.add(subscriber);
+            return added;
+        });
+        byte[] event = bytes(data.append("]}\n\n").toString());
+        delivery(id).execute(() -> deliver(id, channel, new Subscriber[]{subscriber}, event));
+    }
+
+    // sends the cells changed since the last event to everyone watching, the caller must hold
+    // the lock of the game
+    void publish(UUID id, Game game) {
+        Channel channel = channels.get(id);
+        if (channel == null)
+            return;
+        StringBuilder data = new StringBuilder("event: delta\ndata: ");
+        appendStatus(data, game).append(",\"changed\":[");
+        int[] board = exponents(game);
+        boolean first = true;
+        for (int i = 0; i < board.length; i++) {
+            if (board[i] != channel.board[i]) {
+                data.append(first ? "" : ",").append(i).append(',').append(board[i]);
+                first = false;
+            }
+        }
+        channel.board = board;
+        // only those subscribed now, later ones get this state with their first event
+        Subscriber[] subscribers = channel.subscribers.toArray(new Subscriber[0]);
+        byte[] event = bytes(data.append("]}\n\n").toString());
+        delivery(id).execute(() -> deliver(id, channel, subscribers, event));
+    }
+
+    int getSubscriberCount(UUID id) {
+        Channel channel = channels.get(id);
+        return channel == null ? 0 : channel.subscribers.size();
+    }
+
+    @Override
+    public void close() {
+        for (ScheduledExecutorService delivery : deliveries) {
+            delivery.shutdownNow();
+        }
+        for (Channel channel : channels.values()) {
+            channel.subscribers.forEach(Subscriber::close);
+        }
+        channels.clear();
+    }
+
+    private ScheduledExecutorService delivery(UUID id) {
+        return deliveries[Math.floorMod(id.hashCode(), deliveries.length)];
+    }
+
+    private void deliver(UUID id, Channel channel, Subscriber[] subscribers, byte[] event) {
+        for (Subscriber subscriber : subscribers) {
+            if (!subscriber.send(event)) {
+                subscriber.close();
+                channel.subscribers.remove(subscriber);
+            }
+        }
+        // a game nobody watches any more costs nothing on its moves
+        channels.computeIfPresent(id, (key, existing) -> existing.subscribers.isEmpty() ? null : existing);
+    }
+
+    private void ping(int partition) {
+        channels.forEach((id, channel) -> {
+            if (Math.floorMod(id.hashCode(), deliveries.length) == partition)
+                deliver(id, channel, channel.subscribers.toArray(new Subscriber[0]), PING);
+        });
+    }
+
+    private static StringBuilder appendStatus(StringBuilder data, Game game) {
+        boolean over = game.isOver();
+        return data.append("{\"moves\":").append(game.getMoves())
+                .append(",\"score\":").append(game.getScore())
+                .append(",\"over\":").append(over)
+                .append(",\"won\":").append(over && game.isWon());
+    }
+
+    private static int[] exponents(Game game) {
+        int columns = game.getColumns();
+        int[] board = new int[game.getRows() * columns];
+        for (int i = 0; i < board.length; i++) {
+            board[i] = Bitboard.exponentOf(game.getValueAt(i / columns, i % columns));
+        }
+        return board;
+    }
+
+    private static final class Channel {
+        final CopyOnWriteArrayList<Subscriber> subscribers = new CopyOnWriteArrayList<>();
+        // the exponents sent with the last event, guarded by the lock of the game
+        int[] board;
+    }
+}
@@ -0,0 +1,221 @@
+package spw4.game2048;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+// Renders the game page into a reusable byte buffer. The template is split into static byte
+// fragments once, tile values come from a table of cached digit strings and numbers and ids are
+// encoded in place, so rendering a page does not allocate. Not thread-safe, use one per thread.
+public class GameHtmlRenderer extends ResponseBuffer {
+
+    private static final String TEMPLATE = """
+            <!DOCTYPE html>
+            <html lang="en">
+            <head>
+                <meta charset="UTF-8">
+                <title>2048</title>
+                <link href="css/bootstrap.min.css" rel="stylesheet"/>
+                <link href="icons/bootstrap-icons.css" rel="stylesheet"/>
+            </head>
+            <body>
+                <h1 class="m-5 text-center">Play 2048:</h1>
+
+                <div class="row">
+                    <div class="col-4"></div>
+                    <div class="col">
+                        <div class="row">
+                            <div class="col text-center pb-4"><h5>Moves: <span id="moves">${moves}</span></h5></div>
+                            <div class="col text-center pb-4"><h5>Score: <span id="score">${score}</span></h5></div>
+                        </div>
+            ${status}${hint}            <div class="row">
+                            <div class="col-2"></div>
+                            <div class="col text-center pb-4"><a role="button" class="btn btn-secondary" href="Game?id=${id}&action=up"><i class="bi-arrow-up"></i></a></div>
+                            <div class="col-2"></div>
+                        </div>
+                        <div class="row">
+                            <div class="col-2 my-auto text-right"><a role="button" class="btn btn-secondary" href="Game?id=${id}&action=left"><i class="bi-arrow-left"></i></a></div>
+                            <div class="col">
+                                <div id="board" class="container text-center bg-secondary">${board}
+                                </div>
+                            </div>
+                            <div class="col-2 my-auto"><a role="button" class="btn btn-secondary" href="Game?id=${id}&action=right"><i class="bi-arrow-right"></i></a></div>
+                        </div>
+                        <div class="row">
+                            <div class="col-2"></div>
+                            <div class="col text-center pt-4"><a role="button" class="btn btn-secondary" href="Game?id=${id}&action=down"><i class="bi-arrow-down"></i></a></div>
+                            <div class="col-2"></div>
+                        </div>
+                        <div class="row">
+                            <div class="col text-center pt-4"><a role="button" class="btn btn-danger w-75" href="Game?action=new">New Game</a></div>
+                            <div class="col text-center pt-4"><a role="button" class="btn btn-info w-75" href="Game?id=${id}">Refresh</a></div>
+                            <div class="col text-center pt-4"><a role="button" class="btn btn-success w-75" href="Game?id=${id}&action=hint">Hint</a></div>
+                        </div>
+                    </div>
+                    <div class="col-4"></div>
+                </div>
+                <script src="js/game.js"></script>
+            </body>
+            </html>
+            """;
+
+    private static final byte[] WIN = bytes("""
+                        <div class="row">
+                            <div class="col text-center pb-4"><h1><span class="badge badge-success w-75">YOU WIN</span></h1></div>
+                        </div>
+            """);
+    private static final byte[] LOSE = bytes("""
+                        <div class="row">
+                            <div class="col text-center pb-4"><h1><span class="badge badge-danger w-75">YOU LOSE</span></h1></div>
+                        </div>
+            """);
+    private static final byte[][] HINTS = new byte[Direction.values().length][];
+
+    private static final byte[][] TILES = new byte[31][];
+
+    private static final byte[] ROW_START = bytes("\n" + " ".repeat(24) + "<div class=\"row\">");
+    private static final byte[] ROW_END = bytes("\n" + " ".repeat(24) + "</div>");
+    private static final byte[] TILE_END = bytes("</div>");
+    // indexed by (last row ? 2 : 0) + (last column ? 1 : 0), the border cells get a margin
+    private static final byte[][] TILE_STARTS = new byte[4][];
+
+    private static final int MOVES = -1;
+    private static final int SCORE = -2;
+    private static final int STATUS = -3;
+    private static final int HINT = -4;
+    private static final int ID = -5;
+    private static final int BOARD = -6;
+
+    // the template is FRAGMENTS[0] SLOTS[0] FRAGMENTS[1] SLOTS[1] ... FRAGMENTS[n], each slot
+    // being one of the constants above
+    private static final String[] PARTS;
+    private static final byte[][] FRAGMENTS;
+    private static final int[] SLOTS;
+
+    static {
+        for (Direction direction : Direction.values()) {
+            HINTS[direction.ordinal()] = bytes("""
+                                <div class="row">
+                                    <div class="col text-center pb-4"><h5>Hint: %s</h5></div>
+                                </div>
+                    """.formatted(direction));
+        }
+        for (int i = 0; i < TILE_STARTS.length; i++) {
+            TILE_STARTS[i] = bytes("\n" + " ".repeat(28) + "<div class=\"col mt-1 ml-1"
+                    + ((i & 2) != 0 ? " mb-1" : "") + ((i & 1) != 0 ? " mr-1" : "") + " bg-light\">");
+        }
+        TILES[0] = bytes("0");
+        for (int exponent = 1; exponent < TILES.length; exponent++) {
+            TILES[exponent] = bytes(Integer.toString(1 << exponent));
+        }
+
+        List<String> parts = new ArrayList<>();
+        List<Integer> slots = new ArrayList<>();
+        int start = 0;
+        for (int open = TEMPLATE.indexOf("${"); open >= 0; open = TEMPLATE.indexOf("${", start)) {
+            int close = TEMPLATE.indexOf('}', open);
+            parts.add(TEMPLATE.substring(start, open));
+            String name = TEMPLATE.substring(open + 2, close);
+            switch (name) {
+                case "moves": slots.add(MOVES); break;
+                case "score": slots.add(SCORE); break;
+                case "status": slots.add(STATUS); break;
+                case "hint": slots.add(HINT); break;
+                case "id": slots.add(ID); break;
+                case "board": slots.add(BOARD); break;
+                default: throw new IllegalStateException("unknown template slot " + name);
+            }
+            start = close + 1;
+        }
+        parts.add(TEMPLATE.substring(start));
+
+        PARTS = parts.toArray(new String[0]);
+        FRAGMENTS = parts.stream().map(ResponseBuffer::bytes).toArray(byte[][]::new);
+        SLOTS = slots.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    private final byte[][] fragments;
+
+    public GameHtmlRenderer() {
+        fragments = FRAGMENTS;
+    }
+
+    // links the assets by the names AssetPipeline gave them, original names are the keys
+    public GameHtmlRenderer(Map<String, String> assets) {
+        fragments = new byte[PARTS.length][];
+        for (int i = 0; i < PARTS.length; i++) {
+            fragments[i] = bytes(AssetPipeline.rewrite(PARTS[i], assets));
+        }
+    }
+
+    // all markup a page can contain, for finding the classes and assets it uses
+    static String markup() {
+        StringBuilder markup = new StringBuilder(TEMPLATE);
+        for (byte[] fragment : List.of(WIN, LOSE, ROW_START, ROW_END)) {
+            markup.append(new String(fragment, StandardCharsets.UTF_8));
+        }
+        for (byte[][] group : List.of(HINTS, TILE_STARTS)) {
+            for (byte[] fragment : group) {
+                markup.append(new String(fragment, StandardCharsets.UTF_8));
+            }
+        }
+        return markup.toString();
+    }
+
+    public void render(UUID id, Game game, Direction hint) {
+        reset();
+        boolean over = game.isOver();
+        boolean won = over && game.isWon();
+
+        for (int i = 0; i < SLOTS.length; i++) {
+            write(fragments[i]);
+            int slot = SLOTS[i];
+            switch (slot) {
+                case MOVES:
+                    writeNumber(game.getMoves());
+                    break;
+                case SCORE:
+                    writeNumber(game.getScore());
+                    break;
+                case STATUS:
+                    if (over)
+                        write(won ? WIN : LOSE);
+                    break;
+                case HINT:
+                    if (hint != null)
+                        write(HINTS[hint.ordinal()]);
+                    break;
+                case ID:
+                    writeId(id);
+                    break;
+                case BOARD:
+                    writeBoard(game);
+                    break;
+            }
+        }
+        write(fragments[SLOTS.length]);
+    }
+
+    private void writeBoard(Game game) {
+        int rows = game.getRows();
+        int columns = game.getColumns();
+        for (int x = 0; x < rows; x++) {
+            write(ROW_START);
+            for (int y = 0; y < columns; y++) {
+                write(TILE_STARTS[(x == rows - 1 ? 2 : 0) + (y == columns - 1 ? 1 : 0)]);
+                writeTile(game.getValueAt(x, y));
+                write(TILE_END);
+            }
+            write(ROW_END);
+        }
+    }
+
+    private void writeTile(int value) {
+        if (value >= 0 && Integer.bitCount(value) <= 1 && value != 1)
+            write(TILES[Bitboard.exponentOf(value)]);
+        else
+            writeNumber(value);
+    }
+}
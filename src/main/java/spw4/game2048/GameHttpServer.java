@@ -0,0 +1,400 @@
+package spw4.game2048;
+
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import javax.management.JMException;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.System.Logger.Level;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+// Serves the game API and the static files of the web app on the JDK's built-in HTTP server,
+// without a servlet container. Settings are the init parameters of GameServlet, read from
+// system properties prefixed with "game2048.", e.g. -Dgame2048.maxGames=1000. Metrics are
+// served on /metrics and registered over JMX under the name http-<port>.
+public class GameHttpServer implements Closeable {
+
+    static final int DEFAULT_PORT = 8080;
+    static final String DEFAULT_WEB_ROOT = "src/main/webapp";
+    static final long WRITE_TIMEOUT_SECONDS = 10;
+    private static final System.Logger LOGGER = System.getLogger(GameHttpServer.class.getName());
+
+    private static final Map<String, String> CONTENT_TYPES = Map.of(
+            "html", "text/html;charset=UTF-8",
+            "jsp", "text/html;charset=UTF-8",
+            "css", "text/css;charset=UTF-8",
+            "js", "text/javascript;charset=UTF-8",
+            "map", "application/json;charset=UTF-8",
+            "woff", "font/woff",
+            "woff2", "font/woff2");
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+    // the JDK server only has blocking streams, so events are written by a few threads of their
+    // own, each draining the queue of one event stream at a time, see EventStream
+    private final ExecutorService streamWriters;
+    private final ScheduledExecutorService writeTimeouts = Executors.newSingleThreadScheduledExecutor(
+            runnable -> daemon(runnable, "game-events-timeout"));
+    private final Set<EventStream> eventStreams = ConcurrentHashMap.newKeySet();
+    private final GameRequestHandler handler;
+    private final Path webRoot;
+    // fingerprinted files never change, so they are read only once
+    private final ConcurrentHashMap<Path, byte[]> immutableFiles = new ConcurrentHashMap<>();
+
+    public GameHttpServer(InetSocketAddress address, Path webRoot, Function<String, String> settings) throws IOException {
+        this.webRoot = webRoot.toAbsolutePath().normalize();
+        Path manifest = this.webRoot.resolve(AssetPipeline.MANIFEST);
+        Map<String, String> assets = Map.of();
+        if (Files.isRegularFile(manifest)) {
+            try (InputStream in = Files.newInputStream(manifest)) {
+                assets = AssetPipeline.readManifest(in);
+            }
+        }
+        handler = new GameRequestHandler(GameRequestHandler.createGameStore(settings), settings, assets);
+        executor = createExecutor(GameRequestHandler.getInt(settings, "threads",
+                8 * Runtime.getRuntime().availableProcessors()));
+        streamWriters = Executors.newFixedThreadPool(GameRequestHandler.getInt(settings, "eventWriters",
+                Math.max(2, Runtime.getRuntime().availableProcessors())),
+                runnable -> daemon(runnable, "game-events-writer"));
+        writeTimeouts.scheduleWithFixedDelay(this::abortStalledWrites, 1, 1, TimeUnit.SECONDS);
+        server = HttpServer.create(address, 0);
+        server.setExecutor(executor);
+        server.createContext("/Game", this::serveGame);
+        server.createContext("/metrics", this::serveMetrics);
+        server.createContext("/", this::serveFile);
+    }
+
+    // java spw4.game2048.Main serve [port [web root]]
+    public static void main(String[] args) throws IOException {
+        long start = System.nanoTime();
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_PORT;
+        Path webRoot = Path.of(args.length > 1 ? args[1] : DEFAULT_WEB_ROOT);
+        GameHttpServer server = new GameHttpServer(new InetSocketAddress(port), webRoot,
+                name -> System.getProperty("game2048." + name));
+        server.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            try {
+                server.close();
+            } catch (IOException e) {
+                LOGGER.log(Level.ERROR, "closing the server failed", e);
+            }
+        }));
+        System.out.printf("serving %s on http://localhost:%d/ after %d ms%n",
+                server.webRoot, server.getPort(), (System.nanoTime() - start) / 1_000_000);
+    }
+
+    // one virtual thread per request where the runtime has them, a fixed pool before JDK 21
+    private static ExecutorService createExecutor(int threads) {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newFixedThreadPool(threads);
+        }
+    }
+
+    private static Thread daemon(Runnable runnable, String name) {
+        Thread thread = new Thread(runnable, name);
+        thread.setDaemon(true);
+        return thread;
+    }
+
+    public void start() {
+        try {
+            handler.getMetrics().register("http-" + getPort());
+        } catch (JMException e) {
+            // another server in this JVM already has the name, it is still scraped on /metrics
+        }
+        server.start();
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    @Override
+    public void close() throws IOException {
+        server.stop(0);
+        executor.shutdown();
+        try {
+            handler.getMetrics().unregister();
+        } catch (JMException e) {
+            // unregistered by someone else
+        }
+        handler.close();
+        // after the subscribers closed by the handler
+        streamWriters.shutdown();
+        writeTimeouts.shutdown();
+    }
+
+    private void serveGame(HttpExchange exchange) throws IOException {
+        ServerExchange serverExchange = new ServerExchange(exchange, parseParameters(exchange));
+        try {
+            handler.handle(serverExchange);
+        } finally {
+            if (!serverExchange.streaming)
+                exchange.close();
+        }
+    }
+
+    private void serveMetrics(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            StringBuilder text = new StringBuilder(8192);
+            handler.getMetrics().writePrometheus(text);
+            byte[] bytes = text.toString().getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", GameMetrics.CONTENT_TYPE);
+            exchange.sendResponseHeaders(200, bytes.length);
+            exchange.getResponseBody().write(bytes);
+        }
+    }
+
+    // the query string and a form-encoded body, the first value of a name wins like in servlets
+    private static Map<String, String> parseParameters(HttpExchange exchange) throws IOException {
+        Map<String, String> parameters = new HashMap<>();
+        parseParameters(exchange.getRequestURI().getRawQuery(), parameters);
+        if ("POST".equals(exchange.getRequestMethod())) {
+            String contentType = exchange.getRequestHeaders().getFirst("Content-Type");
+            if (contentType != null && contentType.startsWith("application/x-www-form-urlencoded"))
+                parseParameters(new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8), parameters);
+        }
+        return parameters;
+    }
+
+    private static void parseParameters(String query, Map<String, String> parameters) {
+        if (query == null || query.isEmpty())
+            return;
+        for (String pair : query.split("&")) {
+            int equals = pair.indexOf('=');
+            String name = URLDecoder.decode(equals < 0 ? pair : pair.substring(0, equals), StandardCharsets.UTF_8);
+            String value = equals < 0 ? "" : URLDecoder.decode(pair.substring(equals + 1), StandardCharsets.UTF_8);
+            parameters.putIfAbsent(name, value);
+        }
+    }
+
+    // index.jsp has no dynamic parts, so it is served as the plain welcome page. Fingerprinted
+    // files are cached for good, by clients and in memory, others are revalidated every time.
+    // The gzip variant of a file is sent instead of it to clients that accept it.
+    private void serveFile(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            String method = exchange.getRequestMethod();
+            if (!"GET".equals(method) && !"HEAD".equals(method)) {
+                sendError(exchange, 405, "method not allowed");
+                return;
+            }
+            String path = exchange.getRequestURI().getPath();
+            if (path.endsWith("/"))
+                path += "index.jsp";
+            Path file = webRoot.resolve(path.substring(1)).normalize();
+            if (!file.startsWith(webRoot) || file.startsWith(webRoot.resolve("WEB-INF")) || !Files.isRegularFile(file)) {
+                sendError(exchange, 404, "not found");
+                return;
+            }
+
+            String name = file.getFileName().toString();
+            String contentType = CONTENT_TYPES.get(name.substring(name.lastIndexOf('.') + 1));
+            Headers headers = exchange.getResponseHeaders();
+            headers.set("Content-Type", contentType == null ? "application/octet-stream" : contentType);
+            boolean immutable = AssetPipeline.isFingerprinted(name);
+            headers.set("Cache-Control", immutable ? AssetPipeline.IMMUTABLE : AssetPipeline.REVALIDATE);
+            Path compressed = file.resolveSibling(name + ".gz");
+            if (Files.isRegularFile(compressed)) {
+                headers.set("Vary", "Accept-Encoding");
+                if (AssetPipeline.acceptsGzip(exchange.getRequestHeaders().getFirst("Accept-Encoding"))) {
+                    headers.set("Content-Encoding", "gzip");
+                    file = compressed;
+                }
+            }
+
+            byte[] content = immutable ? immutableFiles.get(file) : null;
+            if (content == null) {
+                content = Files.readAllBytes(file);
+                if (immutable)
+                    immutableFiles.put(file, content);
+            }
+            if ("HEAD".equals(method)) {
+                headers.set("Content-Length", Integer.toString(content.length));
+                exchange.sendResponseHeaders(200, -1);
+                return;
+            }
+            exchange.sendResponseHeaders(200, content.length);
+            exchange.getResponseBody().write(content);
+        }
+    }
+
+    private void abortStalledWrites() {
+        long now = System.nanoTime();
+        for (EventStream stream : eventStreams) {
+            stream.abortIfStalled(now);
+        }
+    }
+
+    private final class ServerExchange implements GameRequestHandler.Exchange {
+        final HttpExchange exchange;
+        final Map<String, String> parameters;
+        // event streams stay open until the subscriber is closed
+        boolean streaming;
+
+        ServerExchange(HttpExchange exchange, Map<String, String> parameters) {
+            this.exchange = exchange;
+            this.parameters = parameters;
+        }
+
+        @Override
+        public String getParameter(String name) {
+            return parameters.get(name);
+        }
+
+        @Override
+        public void send(int status, String contentType, ResponseBuffer body) throws IOException {
+            exchange.getResponseHeaders().set("Content-Type", contentType);
+            exchange.sendResponseHeaders(status, body.length);
+            body.writeTo(exchange.getResponseBody());
+        }
+
+        @Override
+        public void sendError(int status, String message) throws IOException {
+            GameHttpServer.sendError(exchange, status, message);
+        }
+
+        // a chunked response written by the stream writers
+        @Override
+        public GameEventHub.Subscriber startEventStream() throws IOException {
+            exchange.getResponseHeaders().set("Content-Type", "text/event-stream;charset=UTF-8");
+            exchange.getResponseHeaders().set("Cache-Control", "no-cache");
+            exchange.sendResponseHeaders(200, 0);
+            streaming = true;
+            EventStream stream = new EventStream(exchange);
+            eventStreams.add(stream);
+            return stream;
+        }
+    }
+
+    // A writer drains the queue while it has events. A stalled client blocks its writer until the
+    // write is aborted, after WRITE_TIMEOUT_SECONDS or once the hub drops the client for its
+    // backlog: interrupting the writer closes the connection, since the server's sockets are
+    // interruptible channels. So a writer is never held longer than the timeout.
+    private final class EventStream extends GameEventHub.QueuedSubscriber {
+        final HttpExchange exchange;
+        final OutputStream out;
+        // whether a writer is draining the queue and which one, guarded by this
+        private boolean draining;
+        private Thread writer;
+        // when the current write started, valid while writing
+        private volatile long writeStart;
+        private volatile boolean writing;
+
+        EventStream(HttpExchange exchange) {
+            this.exchange = exchange;
+            out = exchange.getResponseBody();
+        }
+
+        @Override
+        protected void write() {
+            startDrain();
+        }
+
+        // aborts a write in progress, otherwise a writer ends the response
+        @Override
+        protected void disconnect() {
+            abort();
+            startDrain();
+        }
+
+        void abortIfStalled(long now) {
+            if (writing && now - writeStart > TimeUnit.SECONDS.toNanos(WRITE_TIMEOUT_SECONDS)) {
+                close();
+                // also when the write that is stuck ends the response of a closed stream
+                abort();
+            }
+        }
+
+        private synchronized void abort() {
+            if (writer != null)
+                writer.interrupt();
+        }
+
+        private void startDrain() {
+            synchronized (this) {
+                if (draining)
+                    return;
+                draining = true;
+            }
+            streamWriters.execute(this::drain);
+        }
+
+        private void drain() {
+            synchronized (this) {
+                writer = Thread.currentThread();
+            }
+            try {
+                byte[] event = poll();
+                while (event != null || !isClosed()) {
+                    if (event == null) {
+                        startWrite();
+                        out.flush();
+                        writing = false;
+                        // events queued while flushing are still written by this drain
+                        synchronized (this) {
+                            event = poll();
+                            if (event == null && !isClosed()) {
+                                draining = false;
+                                writer = null;
+                                return;
+                            }
+                        }
+                        continue;
+                    }
+                    startWrite();
+                    out.write(event);
+                    writing = false;
+                    event = poll();
+                }
+                // dropped, ending the response writes the last chunk
+                startWrite();
+                exchange.close();
+            } catch (IOException e) {
+                // the client is gone or the write was aborted, which closed the connection
+                close();
+                exchange.close();
+            } finally {
+                writing = false;
+                synchronized (this) {
+                    writer = null;
+                }
+                // an abort that came too late must not hit the next task of this thread
+                Thread.interrupted();
+            }
+            eventStreams.remove(this);
+        }
+
+        private void startWrite() {
+            writeStart = System.nanoTime();
+            writing = true;
+        }
+    }
+
+    private static void sendError(HttpExchange exchange, int status, String message) throws IOException {
+        byte[] bytes = (message + "\n").getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "text/plain;charset=UTF-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+}
@@ -2,7 +2,19 @@ package spw4.game2048;
 
 public class GameImpl implements Game {
 
-    private int[][] tiles;
+    public static final int MIN_SIZE = 3;
+    public static final int MAX_SIZE = 8;
+    public static final int DEFAULT_SIZE = 4;
+    public static final int DEFAULT_WINNING_TILE = 2048;
+
+    // row-major, the tile at (x, y) is tiles[x * columns + y]
+    private int[] tiles;
+
+    private final int rows;
+
+    private final int columns;
+
+    private final int winningTile;
 
     private int moves;
 
@@ -10,13 +22,90 @@ public class GameImpl implements Game {
 
     private TileRandom tileRandom;
 
+    // maintained by every change of a tile, so status queries need no scan of the board:
+    // bit i is set if tiles[i] is empty, at most 8x8 cells fit into the long
+    private long freeMask;
+
+    private int maxTile;
+
+    // number of tiles equal to the winning tile
+    private int winningTiles;
+
+    // whether two neighbours are equal, only kept up to date while the board is full
+    private boolean hasMerge;
+
+    // whether the current move changed a tile
+    private boolean changed;
+
+    // pairs of tiles merged by the current move
+    private int merges;
+
     public GameImpl() {
         this(new RealTileRandom());
     }
 
     public GameImpl(TileRandom tileRandom) {
-        tiles = new int[4][4];
+        this(DEFAULT_SIZE, DEFAULT_SIZE, DEFAULT_WINNING_TILE, tileRandom);
+    }
+
+    public GameImpl(int rows, int columns, int winningTile, TileRandom tileRandom) {
+        if (rows < MIN_SIZE || rows > MAX_SIZE || columns < MIN_SIZE || columns > MAX_SIZE)
+            throw new IllegalArgumentException("rows and columns must be between " + MIN_SIZE + " and " + MAX_SIZE);
+        if (winningTile < 4 || Integer.bitCount(winningTile) != 1)
+            throw new IllegalArgumentException("winningTile must be a power of two of at least 4");
+        tiles = new int[rows * columns];
+        this.rows = rows;
+        this.columns = columns;
+        this.winningTile = winningTile;
         this.tileRandom = tileRandom;
+        freeMask = -1L >>> (64 - this.tiles.length);
+    }
+
+    // a copy of the game that spawns its tiles from the given generator, e.g. for a rollout
+    // that must not advance the generator of the original
+    public GameImpl(GameImpl other, TileRandom tileRandom) {
+        this(other.rows, other.columns, other.winningTile, tileRandom);
+        copyFrom(other);
+    }
+
+    // replaces the state by the one of a game of the same size and winning tile, keeps the
+    // generator; cheaper than a new copy, so a rollout can reset its game again and again
+    void copyFrom(GameImpl other) {
+        if (other.rows != rows || other.columns != columns || other.winningTile != winningTile)
+            throw new IllegalArgumentException("games differ in size or winning tile");
+        System.arraycopy(other.tiles, 0, tiles, 0, tiles.length);
+        moves = other.moves;
+        score = other.score;
+        freeMask = other.freeMask;
+        maxTile = other.maxTile;
+        winningTiles = other.winningTiles;
+        hasMerge = other.hasMerge;
+    }
+
+    // replaces the whole state, e.g. to replay stored boards
+    void restore(int[][] tiles, int moves, int score) {
+        for (int x = 0; x < rows; x++) {
+            System.arraycopy(tiles[x], 0, this.tiles, x * columns, columns);
+        }
+        this.moves = moves;
+        this.score = score;
+
+        freeMask = 0;
+        maxTile = 0;
+        winningTiles = 0;
+        for (int i = 0; i < this.tiles.length; i++) {
+            int value = this.tiles[i];
+            if (value == 0)
+                freeMask |= 1L << i;
+            maxTile = Math.max(maxTile, value);
+            if (value == winningTile)
+                winningTiles++;
+        }
+        updateHasMerge();
+    }
+
+    TileRandom getTileRandom() {
+        return tileRandom;
     }
 
     public int getMoves() {
@@ -27,34 +116,40 @@ public class GameImpl implements Game {
         return score;
     }
 
+    public int getRows() {
+        return rows;
+    }
+
+    public int getColumns() {
+        return columns;
+    }
+
+    public int getWinningTile() {
+        return winningTile;
+    }
+
+    // a 4x4 game played to 2048, the only kind that is persisted, ranked and searched on bitboards
+    static boolean isStandard(Game game) {
+        return game.getRows() == DEFAULT_SIZE && game.getColumns() == DEFAULT_SIZE
+                && game.getWinningTile() == DEFAULT_WINNING_TILE;
+    }
+
+    public int getMaxTile() {
+        return maxTile;
+    }
+
     public int getValueAt(int x, int y) {
-        return tiles[x][y];
+        if (x < 0 || x >= rows || y < 0 || y >= columns)
+            throw new IndexOutOfBoundsException("(" + x + ", " + y + ")");
+        return tiles[x * columns + y];
     }
 
     public boolean isOver() {
-        if (isWon())
-            return true;
-        if (getNumberOfFreeTiles() != 0)
-            return false;
-
-        for (int x = 0; x < 4; x++) {
-            for (int y = 0; y < 4; y++) {
-                if (hasMergableNeighbours(x, y))
-                    return false;
-            }
-        }
-
-        return true;
+        return isWon() || freeMask == 0 && !hasMerge;
     }
 
     public boolean isWon() {
-        for (int x = 0; x < 4; x++) {
-            for (int y = 0; y < 4; y++) {
-                if (getValueAt(x, y) == 2048)
-                    return true;
-            }
-        }
-        return false;
+        return winningTiles != 0;
     }
 
     @Override
@@ -62,8 +157,8 @@ public class GameImpl implements Game {
         StringBuilder sb = new StringBuilder();
         sb.append("Moves: ").append(getMoves()).append("   ").
                 append("Score: ").append(getScore()).append("\n");
-        for (int x = 0; x < 4; x++) {
-            for (int y = 0; y < 4; y++) {
+        for (int x = 0; x < rows; x++) {
+            for (int y = 0; y < columns; y++) {
                 int value = getValueAt(x, y);
                 sb.append(value == 0 ? "." : value).append("     ");
             }
@@ -72,171 +167,250 @@ public class GameImpl implements Game {
         return sb.toString();
     }
 
-    public void move(Direction direction) {
-        int lowestPos;
+    public boolean move(Direction direction) {
+        FlightEvents.Move event = new FlightEvents.Move();
+        event.begin();
+        boolean wasOver = isOver();
+        int oldScore = score;
+        moveWithoutEvents(direction);
+
+        if (event.shouldCommit()) {
+            event.direction = direction.name();
+            event.changed = changed;
+            event.scoreDelta = score - oldScore;
+            event.tilesMerged = merges;
+            event.moves = moves;
+            event.commit();
+        }
+        if (!wasOver && isOver()) {
+            FlightEvents.GameOver over = new FlightEvents.GameOver();
+            if (over.shouldCommit()) {
+                over.won = isWon();
+                over.score = score;
+                over.moves = moves;
+                over.maxTile = maxTile;
+                over.commit();
+            }
+        }
+        return changed;
+    }
+
+    // the move without flight events, for copies played out by solvers that are no real games;
+    // every direction slides lines of tiles towards their first tile, the lines only differ in
+    // where they start and how far apart their tiles are
+    boolean moveWithoutEvents(Direction direction) {
+        changed = false;
+        merges = 0;
         switch (direction) {
             case up:
-                for (int y = 0; y < 4; y++) {
-                    lowestPos = 0;
-                    for (int x = 0; x < 3; x++) {
-                        int value = getValueAt(x, y);
-                        for (int nX = x + 1; nX < 4; nX++) {
-                            int newValue = getValueAt(nX, y);
-                            if (value == newValue) {
-                                score += 2 * value;
-                                tiles[x][y] = 2 * value;
-                                tiles[nX][y] = 0;
-                                break;
-                            } else if (newValue != 0) {
-                                break;
-                            }
-                        }
-                    }
-                    for (int x = 0; x < 4; x++) {
-                        int value = getValueAt(x, y);
-                        if (value != 0) {
-                            tiles[lowestPos][y] = value;
-                            if (x != lowestPos)
-                                tiles[x][y] = 0;
-                            lowestPos++;
-                        }
-                    }
-                }
+                slideLines(0, 1, columns, columns, rows);
                 break;
-
             case down:
-                for (int y = 0; y < 4; y++) {
-                    lowestPos = 3;
-                    for (int x = 3; x > 0; x--) {
-                        int value = getValueAt(x, y);
-                        for (int nX = x - 1; nX >= 0; nX--) {
-                            int newValue = getValueAt(nX, y);
-                            if (value == newValue) {
-                                score += 2 * value;
-                                tiles[x][y] = 2 * value;
-                                tiles[nX][y] = 0;
-                                break;
-                            } else if (newValue != 0) {
-                                break;
-                            }
-                        }
-                    }
-                    for (int x = 3; x >= 0; x--) {
-                        int value = getValueAt(x, y);
-                        if (value != 0) {
-                            tiles[lowestPos][y] = value;
-                            if (x != lowestPos)
-                                tiles[x][y] = 0;
-                            lowestPos--;
-                        }
-                    }
-                }
+                slideLines((rows - 1) * columns, 1, columns, -columns, rows);
                 break;
             case left:
-                for (int x = 0; x < 4; x++) {
-                    lowestPos = 0;
-                    for (int y = 0; y < 3; y++) {
-                        int value = getValueAt(x, y);
-                        for (int nY = y + 1; nY < 4; nY++) {
-                            int newValue = getValueAt(x, nY);
-                            if (value == newValue) {
-                                score += 2 * value;
-                                tiles[x][y] = 2 * value;
-                                tiles[x][nY] = 0;
-                                break;
-                            } else if (newValue != 0) {
-                                break;
-                            }
-                        }
-                    }
-                    for (int y = 0; y < 4; y++) {
-                        int value = getValueAt(x, y);
-                        if (value != 0) {
-                            tiles[x][lowestPos] = value;
-                            if (y != lowestPos)
-                                tiles[x][y] = 0;
-                            lowestPos++;
-                        }
-                    }
-                }
+                slideLines(0, columns, rows, 1, columns);
                 break;
             case right:
-                for (int x = 0; x < 4; x++) {
-                    lowestPos = 3;
-                    for (int y = 3; y > 0; y--) {
-                        int value = getValueAt(x, y);
-                        for (int nY = y - 1; nY >= 0; nY--) {
-                            int newValue = getValueAt(x, nY);
-                            if (value == newValue) {
-                                score += 2 * value;
-                                tiles[x][y] = 2 * value;
-                                tiles[x][nY] = 0;
-                                break;
-                            } else if (newValue != 0) {
-                                break;
-                            }
-                        }
-                    }
-                    for (int y = 3; y >= 0; y--) {
-                        int value = getValueAt(x, y);
-                        if (value != 0) {
-                            tiles[x][lowestPos] = value;
-                            if (y != lowestPos)
-                                tiles[x][y] = 0;
-                            lowestPos--;
-                        }
-                    }
-                }
+                slideLines(columns - 1, columns, rows, -1, columns);
                 break;
         }
         moves++;
-        if (getNumberOfFreeTiles() != 0)
+        if (freeMask != 0)
             spawn();
+        updateHasMerge();
+        return changed;
+    }
+
+    @Override
+    public int getLegalMoves() {
+        if (freeMask == 0 && !hasMerge)
+            return 0;
+        // a tile can move towards an empty neighbour or merge with an equal one
+        int legalMoves = 0;
+        for (int x = 0; x < rows; x++) {
+            for (int y = 0; y < columns; y++) {
+                int i = x * columns + y;
+                int value = tiles[i];
+                if (y + 1 < columns) {
+                    int right = tiles[i + 1];
+                    if (value == 0 ? right != 0 : value == right)
+                        legalMoves |= 1 << Direction.left.ordinal();
+                    if (right == 0 ? value != 0 : value == right)
+                        legalMoves |= 1 << Direction.right.ordinal();
+                }
+                if (x + 1 < rows) {
+                    int below = tiles[i + columns];
+                    if (value == 0 ? below != 0 : value == below)
+                        legalMoves |= 1 << Direction.up.ordinal();
+                    if (below == 0 ? value != 0 : value == below)
+                        legalMoves |= 1 << Direction.down.ordinal();
+                }
+            }
+        }
+        return legalMoves;
+    }
+
+    private void slideLines(int first, int lineStep, int lineCount, int step, int length) {
+        for (int line = 0, start = first; line < lineCount; line++, start += lineStep) {
+            score += length == 4 ? slide4(start, step) : slide(start, step, length);
+        }
+    }
+
+    // compresses the line at start, start + step, ... towards start, merging each pair of equal
+    // neighbours once; tiles are only written behind the one being read, so it works in place,
+    // and every cell is written once, so it still holds its old tile when compared
+    private int slide(int start, int step, int length) {
+        int end = start + length * step;
+        int target = start;
+        int pending = 0;
+        int gained = 0;
+        for (int i = start; i != end; i += step) {
+            int value = tiles[i];
+            if (value == 0)
+                continue;
+            if (pending == 0) {
+                pending = value;
+            } else if (pending == value) {
+                changed = true;
+                tiles[target] = 2 * value;
+                freeMask &= ~(1L << target);
+                target += step;
+                gained += merged(value);
+                pending = 0;
+            } else {
+                changed |= tiles[target] != pending;
+                tiles[target] = pending;
+                freeMask &= ~(1L << target);
+                target += step;
+                pending = value;
+            }
+        }
+        if (pending != 0) {
+            changed |= tiles[target] != pending;
+            tiles[target] = pending;
+            freeMask &= ~(1L << target);
+            target += step;
+        }
+        for (; target != end; target += step) {
+            changed |= tiles[target] != 0;
+            tiles[target] = 0;
+            freeMask |= 1L << target;
+        }
+        return gained;
+    }
+
+    // the same for the default line length, with all four tiles in locals
+    private int slide4(int start, int step) {
+        int i1 = start + step;
+        int i2 = i1 + step;
+        int i3 = i2 + step;
+        int a = tiles[start];
+        int b = tiles[i1];
+        int c = tiles[i2];
+        int d = tiles[i3];
+        if ((a | b | c | d) == 0)
+            return 0;
+
+        // drop the gaps first, then merge from the front
+        if (c == 0) { c = d; d = 0; }
+        if (b == 0) { b = c; c = d; d = 0; }
+        if (a == 0) { a = b; b = c; c = d; d = 0; }
+
+        int gained = 0;
+        if (a != 0 && a == b) {
+            gained += merged(a);
+            a *= 2;
+            b = c;
+            c = d;
+            d = 0;
+        }
+        if (b != 0 && b == c) {
+            gained += merged(b);
+            b *= 2;
+            c = d;
+            d = 0;
+        }
+        if (c != 0 && c == d) {
+            gained += merged(c);
+            c *= 2;
+            d = 0;
+        }
+
+        changed |= tiles[start] != a || tiles[i1] != b || tiles[i2] != c || tiles[i3] != d;
+        tiles[start] = a;
+        tiles[i1] = b;
+        tiles[i2] = c;
+        tiles[i3] = d;
+        // a cell of the line is free exactly where its new tile is 0
+        freeMask = freeMask & ~(1L << start | 1L << i1 | 1L << i2 | 1L << i3)
+                | (a == 0 ? 1L << start : 0) | (b == 0 ? 1L << i1 : 0)
+                | (c == 0 ? 1L << i2 : 0) | (d == 0 ? 1L << i3 : 0);
+        return gained;
+    }
+
+    // accounts for two tiles of the given value merging, returns the score gained
+    private int merged(int value) {
+        merges++;
+        int tile = 2 * value;
+        if (tile > maxTile)
+            maxTile = tile;
+        if (value == winningTile)
+            winningTiles -= 2;
+        else if (tile == winningTile)
+            winningTiles++;
+        return tile;
     }
 
     public void initialize() {
         spawn();
         spawn();
-    }
+        updateHasMerge();
 
-    private int getNumberOfFreeTiles() {
-        int freeTiles = 0;
-        for (int x = 0; x < 4; x++) {
-            for (int y = 0; y < 4; y++) {
-                if (getValueAt(x, y) == 0)
-                    freeTiles++;
-            }
+        FlightEvents.GameCreated event = new FlightEvents.GameCreated();
+        if (event.shouldCommit()) {
+            event.rows = rows;
+            event.columns = columns;
+            event.winningTile = winningTile;
+            event.commit();
         }
-        return freeTiles;
     }
 
     private void spawn() {
-        int position = tileRandom.getRandomPosition(getNumberOfFreeTiles());
+        int position = tileRandom.getRandomPosition(Long.bitCount(freeMask));
         int value = tileRandom.getRandomValue();
 
-        for (int x = 0; x < 4; x++) {
-            for (int y = 0; y < 4; y++) {
-                if (getValueAt(x, y) == 0) {
-                    if (position == 0) {
-                        tiles[x][y] = value;
-                        return;
-                    }
-                    position--;
-                }
-            }
+        // the free cells in row-major order are the set bits from the lowest one up
+        long free = freeMask;
+        for (; position > 0 && free != 0; position--) {
+            free &= free - 1;
         }
+        if (free == 0 || position < 0 || value == 0)
+            return;
+
+        int i = Long.numberOfTrailingZeros(free);
+        tiles[i] = value;
+        freeMask &= ~(1L << i);
+        if (value > maxTile)
+            maxTile = value;
+        if (value == winningTile)
+            winningTiles++;
     }
 
-    private boolean hasMergableNeighbours(int x, int y) {
-        int value = getValueAt(x, y);
-        if (x - 1 >= 0) {
-            if (getValueAt(x - 1, y) == value)
-                return true;
-        }
-        if (y - 1 >= 0) {
-            return getValueAt(x, y - 1) == value;
+    // only a full board needs to know, with a free cell the game goes on anyway
+    private void updateHasMerge() {
+        hasMerge = false;
+        if (freeMask != 0)
+            return;
+        for (int x = 0; x < rows; x++) {
+            for (int y = 0; y < columns; y++) {
+                int i = x * columns + y;
+                int value = tiles[i];
+                if (y + 1 < columns && tiles[i + 1] == value || x + 1 < rows && tiles[i + columns] == value) {
+                    hasMerge = true;
+                    return;
+                }
+            }
         }
-        return false;
     }
 }
-
@@ -0,0 +1,18 @@
+package spw4.game2048;
+
+import java.util.Map;
+
+// What GameMetrics shows through JMX, latencies per action in microseconds.
+public interface GameMetricsMXBean {
+    Map<String, Long> getRequestsByAction();
+    Map<String, Double> getMedianLatencyMicros();
+    Map<String, Double> getP99LatencyMicros();
+    long getMoves();
+    double getMovesPerSecond();
+    long getClientErrors();
+    long getServerErrors();
+    int getActiveGames();
+    long getStoreHits();
+    long getStoreMisses();
+    long getEvictedGames();
+}
@@ -0,0 +1,337 @@
+package spw4.game2048;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.lang.System.Logger.Level;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+// The game API independent of the server it runs in, shared by GameServlet and GameHttpServer.
+// Settings are looked up by name, e.g. servlet init parameters, and are read once on creation.
+class GameRequestHandler implements Closeable {
+
+    static final int DEFAULT_MAX_GAMES = 100_000;
+    static final int DEFAULT_IDLE_TIMEOUT_MINUTES = 30;
+    private static final int DEFAULT_HINT_MILLIS = 10;
+    private static final int MAX_BATCH_MOVES = 10_000;
+    private static final int DEFAULT_SNAPSHOT_COMMIT_MILLIS = 10;
+    private static final int CLEAN_UP_SECONDS = 60;
+    private static final System.Logger LOGGER = System.getLogger(GameRequestHandler.class.getName());
+
+    // the server side of one request
+    interface Exchange {
+        String getParameter(String name);
+
+        void send(int status, String contentType, ResponseBuffer body) throws IOException;
+
+        void sendError(int status, String message) throws IOException;
+
+        // sends the headers of a text/event-stream response and keeps the connection open
+        // without holding the current thread
+        GameEventHub.Subscriber startEventStream() throws IOException;
+    }
+
+    private final GameStore games;
+    // expires idle games of shards no request touches, null for stores without idle timeout
+    private final ScheduledExecutorService cleanUp;
+    private final Solver solver;
+    // expectimax searches 4x4 bitboards only, Monte Carlo search also plays out other sizes
+    private final boolean hintsForAnySize;
+    private final GameSnapshotStore snapshots;
+    private final GameEventHub events = new GameEventHub();
+    private final Leaderboard leaderboard = new Leaderboard();
+    private final GameMetrics metrics = new GameMetrics();
+    // every new game gets its own stream split off this one, guarded by itself
+    private final SplitMixTileRandom tileRandoms = new SplitMixTileRandom();
+    private final ThreadLocal<GameHtmlRenderer> renderers;
+    private final ThreadLocal<GameStateEncoder> encoders = ThreadLocal.withInitial(GameStateEncoder::new);
+
+    // assets maps original to fingerprinted names, see AssetPipeline
+    GameRequestHandler(GameStore games, Function<String, String> settings, Map<String, String> assets) throws IOException {
+        this.games = games;
+        metrics.setGameStore(games);
+        renderers = ThreadLocal.withInitial(() -> new GameHtmlRenderer(assets));
+        // games are persisted only if a snapshot file is configured
+        String snapshotFile = settings.apply("snapshotFile");
+        if (snapshotFile != null) {
+            snapshots = new GameSnapshotStore(Path.of(snapshotFile.trim()),
+                    getInt(settings, "snapshotCommitMillis", DEFAULT_SNAPSHOT_COMMIT_MILLIS),
+                    TimeUnit.MILLISECONDS);
+            if (games instanceof BoundedGameStore)
+                ((BoundedGameStore) games).setEvictionListener(snapshots::remove);
+            snapshots.recover(games::put);
+        } else {
+            snapshots = null;
+        }
+        // hintSolver is expectimax or mcts
+        int hintMillis = getInt(settings, "hintMillis", DEFAULT_HINT_MILLIS);
+        hintsForAnySize = "mcts".equals(settings.apply("hintSolver"));
+        Solver search = hintsForAnySize
+                ? new MonteCarloSolver(hintMillis, TimeUnit.MILLISECONDS)
+                : new ExpectimaxSolver(hintMillis, TimeUnit.MILLISECONDS);
+        // hints for openings are looked up if a book is configured, see OpeningBook
+        String openingBook = settings.apply("openingBook");
+        solver = openingBook == null ? search : new OpeningBook(Path.of(openingBook.trim()), search);
+        if (games instanceof BoundedGameStore) {
+            cleanUp = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "game-store-clean-up");
+                thread.setDaemon(true);
+                return thread;
+            });
+            cleanUp.scheduleWithFixedDelay(((BoundedGameStore) games)::cleanUp,
+                    CLEAN_UP_SECONDS, CLEAN_UP_SECONDS, TimeUnit.SECONDS);
+        } else {
+            cleanUp = null;
+        }
+    }
+
+    static GameStore createGameStore(Function<String, String> settings) {
+        return new BoundedGameStore(
+                getInt(settings, "maxGames", DEFAULT_MAX_GAMES),
+                getInt(settings, "idleTimeoutMinutes", DEFAULT_IDLE_TIMEOUT_MINUTES), TimeUnit.MINUTES);
+    }
+
+    static int getInt(Function<String, String> settings, String name, int defaultValue) {
+        String value = settings.apply(name);
+        return value == null ? defaultValue : Integer.parseInt(value.trim());
+    }
+
+    GameMetrics getMetrics() {
+        return metrics;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (cleanUp != null)
+            cleanUp.shutdownNow();
+        events.close();
+        if (snapshots != null)
+            snapshots.close();
+    }
+
+    private SplitMixTileRandom splitTileRandom() {
+        synchronized (tileRandoms) {
+            return tileRandoms.split();
+        }
+    }
+
+    void handle(Exchange exchange) throws IOException {
+        FlightEvents.Request event = new FlightEvents.Request();
+        event.begin();
+        long start = System.nanoTime();
+        int action = process(exchange);
+        metrics.recordRequest(action, System.nanoTime() - start);
+        if (event.shouldCommit()) {
+            event.action = GameMetrics.nameOf(action);
+            event.commit();
+        }
+    }
+
+    // answers the request, returns what it did as one of the actions of GameMetrics
+    private int process(Exchange exchange) throws IOException {
+        String format = exchange.getParameter("format");
+        if (format == null) format = "html";
+        ResponseBuffer body = format.equals("json") || format.equals("binary") ? encoders.get() : renderers.get();
+
+        try {
+            String action = exchange.getParameter("action");
+            if (action == null) action = "";
+
+            if ("new".equals(action)) {
+                UUID id = UUID.randomUUID();
+                Game newGame = new GameImpl(
+                        getIntParameter(exchange, "rows", GameImpl.DEFAULT_SIZE),
+                        getIntParameter(exchange, "columns", GameImpl.DEFAULT_SIZE),
+                        getIntParameter(exchange, "target", GameImpl.DEFAULT_WINNING_TILE),
+                        splitTileRandom());
+                newGame.initialize();
+                games.put(id, newGame);
+                if (snapshots != null)
+                    snapshots.save(id, newGame);
+                encode(body, format, id, newGame, null, -1, null);
+                exchange.send(200, contentType(format), body);
+                return GameMetrics.NEW;
+            }
+
+            // the best games and optionally the percentile of a score, always as JSON
+            if ("leaderboard".equals(action)) {
+                GameStateEncoder encoder = encoders.get();
+                encoder.encodeLeaderboardJson(leaderboard, getIntParameter(exchange, "score", -1));
+                exchange.send(200, contentType("json"), encoder);
+                return GameMetrics.LEADERBOARD;
+            }
+
+            String idString = exchange.getParameter("id");
+            if (idString != null) {
+                UUID id = UUID.fromString(idString);
+                Game game = games.get(id);
+                if (game == null) {
+                    return sendError(exchange, 404, "unknown game");
+                }
+
+                // players and spectators alike watch the game through a stream of events
+                if ("watch".equals(action)) {
+                    GameEventHub.Subscriber subscriber = exchange.startEventStream();
+                    synchronized (game) {
+                        events.subscribe(id, game, subscriber);
+                    }
+                    return GameMetrics.WATCH;
+                }
+
+                // a batch of moves like moves=ULLRD replaces the single action
+                String batch = exchange.getParameter("moves");
+                Direction[] batchMoves = batch == null ? null : parseMoves(batch);
+                int[] deltas = batchMoves != null && "true".equals(exchange.getParameter("deltas"))
+                        ? new int[batchMoves.length] : null;
+                int applied = -1;
+
+                Direction hint = null;
+                boolean moved = false;
+                // moves on the same game are serialized, different games proceed in parallel
+                synchronized (game) {
+                    boolean wasOver = game.isOver();
+                    if (batchMoves != null) {
+                        moved = true;
+                        applied = 0;
+                        while (applied < batchMoves.length && !game.isOver()) {
+                            int score = game.getScore();
+                            game.move(batchMoves[applied]);
+                            if (deltas != null)
+                                deltas[applied] = game.getScore() - score;
+                            applied++;
+                        }
+                        metrics.recordMoves(applied);
+                    } else if (!game.isOver()) {
+                        moved = true;
+                        switch (action) {
+                            case "up":
+                                game.move(Direction.up);
+                                break;
+                            case "down":
+                                game.move(Direction.down);
+                                break;
+                            case "left":
+                                game.move(Direction.left);
+                                break;
+                            case "right":
+                                game.move(Direction.right);
+                                break;
+                            case "hint":
+                                // other sizes and targets get no hint from expectimax
+                                if (hintsForAnySize || GameImpl.isStandard(game))
+                                    hint = solver.findBestMove(game);
+                                moved = false;
+                                break;
+                            default:
+                                moved = false;
+                                break;
+                        }
+                    }
+                    if (moved) {
+                        if (batchMoves == null)
+                            metrics.recordMoves(1);
+                        // only captures the state, the snapshot is written with the next group
+                        if (snapshots != null)
+                            snapshots.save(id, game);
+                        events.publish(id, game);
+                        // every game is ranked once, by the move that ended it
+                        if (!wasOver && game.isOver() && GameImpl.isStandard(game))
+                            leaderboard.submit(game);
+                    }
+                    encode(body, format, id, game, hint, applied, deltas);
+                }
+
+                exchange.send(200, contentType(format), body);
+                return batchMoves != null ? GameMetrics.BATCH : actionOf(action);
+            }
+
+            return sendError(exchange, 400, "invalid request");
+        }
+        catch (IllegalArgumentException e) {
+            // malformed ids, numbers, sizes and moves
+            return sendError(exchange, 400, e.toString());
+        }
+        catch (RuntimeException e) {
+            LOGGER.log(Level.ERROR, "request failed", e);
+            return sendError(exchange, 500, e.toString());
+        }
+    }
+
+    private int sendError(Exchange exchange, int status, String message) throws IOException {
+        metrics.recordError(status);
+        exchange.sendError(status, message);
+        return GameMetrics.INVALID;
+    }
+
+    // the action of a request on an existing game, anything unknown only shows the game
+    private static int actionOf(String action) {
+        switch (action) {
+            case "up":
+                return GameMetrics.UP;
+            case "down":
+                return GameMetrics.DOWN;
+            case "left":
+                return GameMetrics.LEFT;
+            case "right":
+                return GameMetrics.RIGHT;
+            case "hint":
+                return GameMetrics.HINT;
+            default:
+                return GameMetrics.REFRESH;
+        }
+    }
+
+    private static int getIntParameter(Exchange exchange, String name, int defaultValue) {
+        String value = exchange.getParameter(name);
+        return value == null ? defaultValue : Integer.parseInt(value.trim());
+    }
+
+    // html renders the page, json and binary encode only the game state as described in GameStateEncoder
+    private static String contentType(String format) {
+        switch (format) {
+            case "json":
+                return "application/json;charset=UTF-8";
+            case "binary":
+                return "application/octet-stream";
+            default:
+                return "text/html;charset=UTF-8";
+        }
+    }
+
+    private static void encode(ResponseBuffer body, String format, UUID id, Game game, Direction hint,
+                               int applied, int[] deltas) {
+        switch (format) {
+            case "json":
+                ((GameStateEncoder) body).encodeJson(id, game, hint, applied, deltas);
+                break;
+            case "binary":
+                ((GameStateEncoder) body).encodeBinary(id, game, hint, applied, deltas);
+                break;
+            default:
+                ((GameHtmlRenderer) body).render(id, game, hint);
+                break;
+        }
+    }
+
+    // U, D, L and R in any case, validated completely before any move is played
+    private static Direction[] parseMoves(String batch) {
+        if (batch.length() > MAX_BATCH_MOVES)
+            throw new IllegalArgumentException("at most " + MAX_BATCH_MOVES + " moves per request");
+        Direction[] moves = new Direction[batch.length()];
+        for (int i = 0; i < moves.length; i++) {
+            switch (batch.charAt(i)) {
+                case 'U': case 'u': moves[i] = Direction.up;    break;
+                case 'D': case 'd': moves[i] = Direction.down;  break;
+                case 'L': case 'l': moves[i] = Direction.left;  break;
+                case 'R': case 'r': moves[i] = Direction.right; break;
+                default: throw new IllegalArgumentException("invalid move '" + batch.charAt(i) + "' at " + i);
+            }
+        }
+        return moves;
+    }
+}
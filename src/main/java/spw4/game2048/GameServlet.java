@@ -1,159 +1,147 @@
 package spw4.game2048;
 
+import javax.management.JMException;
+import javax.servlet.AsyncContext;
 import javax.servlet.ServletException;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
 import javax.servlet.annotation.WebServlet;
 import javax.servlet.http.HttpServlet;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import java.io.IOException;
-import java.io.PrintWriter;
-import java.util.HashMap;
-import java.util.UUID;
+import java.io.InputStream;
+import java.util.Map;
 
-@WebServlet("/Game")
+// Loaded on startup so that MetricsServlet finds the metrics in the servlet context.
+@WebServlet(urlPatterns = "/Game", asyncSupported = true, loadOnStartup = 1)
 public class GameServlet extends HttpServlet {
-    private HashMap<UUID, Game> games;
+
+    static final String METRICS_ATTRIBUTE = GameMetrics.class.getName();
+
+    private GameRequestHandler handler;
 
     @Override
     public void init() throws ServletException {
         super.init();
-        games = new HashMap<>();
+        Map<String, String> assets;
+        try (InputStream manifest = getServletContext().getResourceAsStream("/" + AssetPipeline.MANIFEST)) {
+            assets = manifest == null ? Map.of() : AssetPipeline.readManifest(manifest);
+        } catch (IOException e) {
+            throw new ServletException("cannot read " + AssetPipeline.MANIFEST, e);
+        }
+        try {
+            handler = new GameRequestHandler(createGameStore(), this::getInitParameter, assets);
+        } catch (IOException e) {
+            throw new ServletException("cannot open the snapshot file or the opening book", e);
+        }
+        getServletContext().setAttribute(METRICS_ATTRIBUTE, handler.getMetrics());
+        String contextPath = getServletContext().getContextPath();
+        try {
+            handler.getMetrics().register(contextPath.isEmpty() ? "/" : contextPath);
+        } catch (JMException e) {
+            log("cannot register metrics over JMX", e);
+        }
+    }
+
+    protected GameStore createGameStore() {
+        return GameRequestHandler.createGameStore(this::getInitParameter);
+    }
+
+    @Override
+    public void destroy() {
+        getServletContext().removeAttribute(METRICS_ATTRIBUTE);
+        try {
+            handler.getMetrics().unregister();
+        } catch (JMException e) {
+            log("cannot unregister metrics", e);
+        }
+        try {
+            handler.close();
+        } catch (IOException e) {
+            log("cannot close snapshot file", e);
+        }
+        super.destroy();
     }
 
     @Override
     protected void doGet(HttpServletRequest request, HttpServletResponse response) throws ServletException, IOException {
-        response.setContentType("text/html");
-        PrintWriter writer = response.getWriter();
+        handler.handle(new GameRequestHandler.Exchange() {
+            @Override
+            public String getParameter(String name) {
+                return request.getParameter(name);
+            }
 
-        try {
-            String action = request.getParameter("action");
-            if (action == null) action = "";
+            @Override
+            public void send(int status, String contentType, ResponseBuffer body) throws IOException {
+                response.setStatus(status);
+                response.setContentType(contentType);
+                body.writeTo(response.getOutputStream());
+            }
 
-            if ("new".equals(action)) {
-                UUID id = UUID.randomUUID();
-                Game newGame = new GameImpl();
-                newGame.initialize();
-                games.put(id, newGame);
-                writer.println(game2Html(id, newGame));
-                return;
+            @Override
+            public void sendError(int status, String message) throws IOException {
+                response.setStatus(status);
+                response.setContentType("text/plain;charset=UTF-8");
+                response.getOutputStream().println(message);
             }
 
-            String idString = request.getParameter("id");
-            if (idString != null) {
-                UUID id = UUID.fromString(idString);
-                Game game = games.get(id);
+            // the container keeps the connection open after this request returns
+            @Override
+            public GameEventHub.Subscriber startEventStream() throws IOException {
+                response.setContentType("text/event-stream;charset=UTF-8");
+                response.setHeader("Cache-Control", "no-cache");
+                AsyncContext async = request.startAsync();
+                async.setTimeout(0);
+                response.flushBuffer();
+                ServletOutputStream out = response.getOutputStream();
+                // non-blocking from here on, the container calls onWritePossible once a write
+                // that did not complete at once has gone out
+                GameEventHub.QueuedSubscriber subscriber = new GameEventHub.QueuedSubscriber() {
+                    @Override
+                    protected synchronized void write() {
+                        try {
+                            while (out.isReady()) {
+                                byte[] event = poll();
+                                if (event == null) {
+                                    out.flush();
+                                    return;
+                                }
+                                out.write(event);
+                            }
+                        } catch (IOException | IllegalStateException e) {
+                            close();
+                        }
+                    }
 
-                if (!game.isOver()) {
-                    switch (action) {
-                        case "up":
-                            game.move(Direction.up);
-                            break;
-                        case "down":
-                            game.move(Direction.down);
-                            break;
-                        case "left":
-                            game.move(Direction.left);
-                            break;
-                        case "right":
-                            game.move(Direction.right);
-                            break;
+                    @Override
+                    protected void disconnect() {
+                        try {
+                            async.complete();
+                        } catch (IllegalStateException e) {
+                            // already completed by the container
+                        }
+                    }
+                };
+                out.setWriteListener(new WriteListener() {
+                    @Override
+                    public void onWritePossible() {
+                        subscriber.write();
                     }
-                }
 
-                writer.println(game2Html(id, games.get(id)));
-                return;
+                    @Override
+                    public void onError(Throwable t) {
+                        subscriber.close();
+                    }
+                });
+                return subscriber;
             }
-
-            writer.println("invalid request");
-        }
-        catch (Throwable t) {
-            writer.println(t.toString());
-        }
+        });
     }
 
-    private String game2Html(UUID id, Game game) {
-        StringBuffer sb = new StringBuffer();
-
-        sb.append("<!DOCTYPE html>\n");
-        sb.append("<html lang=\"en\">\n");
-        sb.append("<head>\n");
-        sb.append("    <meta charset=\"UTF-8\">\n");
-        sb.append("    <title>2048</title>\n");
-        sb.append("    <link href=\"css/bootstrap.min.css\" rel=\"stylesheet\"/>\n");
-        sb.append("    <link href=\"icons/bootstrap-icons.css\" rel=\"stylesheet\"/>\n");
-        sb.append("    <script src=\"js/bootstrap.min.js\"></script>\n");
-        sb.append("</head>\n");
-        sb.append("<body>\n");
-        sb.append("    <h1 class=\"m-5 text-center\">Play 2048:</h1>\n");
-        sb.append("\n");
-        sb.append("    <div class=\"row\">\n");
-        sb.append("        <div class=\"col-4\"></div>\n");
-        sb.append("        <div class=\"col\">\n");
-        sb.append("            <div class=\"row\">\n");
-        sb.append("                <div class=\"col text-center pb-4\"><h5>Moves: " + game.getMoves() + "</h5></div>\n");
-        sb.append("                <div class=\"col text-center pb-4\"><h5>Score: " + game.getScore() + "</h5></div>\n");
-        sb.append("            </div>\n");
-        if (game.isOver() && game.isWon()) {
-            sb.append("            <div class=\"row\">\n");
-            sb.append("                <div class=\"col text-center pb-4\"><h1><span class=\"badge badge-success w-75\">YOU WIN</span></h1></div>\n");
-            sb.append("            </div>\n");
-        } else if (game.isOver() && !game.isWon()) {
-            sb.append("            <div class=\"row\">\n");
-            sb.append("                <div class=\"col text-center pb-4\"><h1><span class=\"badge badge-danger w-75\">YOU LOSE</span></h1></div>\n");
-            sb.append("            </div>\n");
-        }
-        sb.append("            <div class=\"row\">\n");
-        sb.append("                <div class=\"col-2\"></div>\n");
-        sb.append("                <div class=\"col text-center pb-4\"><a role=\"button\" class=\"btn btn-secondary\" href=\"Game?id=" + id + "&action=up\"><i class=\"bi-arrow-up\"></i></a></div>\n");
-        sb.append("                <div class=\"col-2\"></div>\n");
-        sb.append("            </div>\n");
-        sb.append("            <div class=\"row\">\n");
-        sb.append("                <div class=\"col-2 my-auto text-right\"><a role=\"button\" class=\"btn btn-secondary\" href=\"Game?id=" + id + "&action=left\"><i class=\"bi-arrow-left\"></i></a></div>\n");
-        sb.append("                <div class=\"col\">\n");
-        sb.append("                    <div class=\"container text-center bg-secondary\">\n");
-        sb.append("                        <div class=\"row\">\n");
-        sb.append("                            <div class=\"col mt-1 ml-1 bg-light\">" + game.getValueAt(0, 0) + "</div>\n");
-        sb.append("                            <div class=\"col mt-1 ml-1 bg-light\">" + game.getValueAt(0, 1) + "</div>\n");
-        sb.append("                            <div class=\"col mt-1 ml-1 bg-light\">" + game.getValueAt(0, 2) + "</div>\n");
-        sb.append("                            <div class=\"col mt-1 ml-1 mr-1 bg-light\">" + game.getValueAt(0, 3) + "</div>\n");
-        sb.append("                        </div>\n");
-        sb.append("                        <div class=\"row\">\n");
-        sb.append("                            <div class=\"col mt-1 ml-1 bg-light\">" + game.getValueAt(1, 0) + "</div>\n");
-        sb.append("                            <div class=\"col mt-1 ml-1 bg-light\">" + game.getValueAt(1, 1) + "</div>\n");
-        sb.append("                            <div class=\"col mt-1 ml-1 bg-light\">" + game.getValueAt(1, 2) + "</div>\n");
-        sb.append("                            <div class=\"col mt-1 ml-1 mr-1 bg-light\">" + game.getValueAt(1, 3) + "</div>\n");
-        sb.append("                        </div>\n");
-        sb.append("                        <div class=\"row\">\n");
-        sb.append("                            <div class=\"col mt-1 ml-1 bg-light\">" + game.getValueAt(2, 0) + "</div>\n");
-        sb.append("                            <div class=\"col mt-1 ml-1 bg-light\">" + game.getValueAt(2, 1) + "</div>\n");
-        sb.append("                            <div class=\"col mt-1 ml-1 bg-light\">" + game.getValueAt(2, 2) + "</div>\n");
-        sb.append("                            <div class=\"col mt-1 ml-1 mr-1 bg-light\">" + game.getValueAt(2, 3) + "</div>\n");
-        sb.append("                        </div>\n");
-        sb.append("                        <div class=\"row\">\n");
-        sb.append("                            <div class=\"col mt-1 ml-1 mb-1 bg-light\">" + game.getValueAt(3, 0) + "</div>\n");
-        sb.append("                            <div class=\"col mt-1 ml-1 mb-1 bg-light\">" + game.getValueAt(3, 1) + "</div>\n");
-        sb.append("                            <div class=\"col mt-1 ml-1 mb-1 bg-light\">" + game.getValueAt(3, 2) + "</div>\n");
-        sb.append("                            <div class=\"col mt-1 ml-1 mb-1 mr-1 bg-light\">" + game.getValueAt(3, 3) + "</div>\n");
-        sb.append("                        </div>\n");
-        sb.append("                    </div>\n");
-        sb.append("                </div>\n");
-        sb.append("                <div class=\"col-2 my-auto\"><a role=\"button\" class=\"btn btn-secondary\" href=\"Game?id=" + id + "&action=right\"><i class=\"bi-arrow-right\"></i></a></div>\n");
-        sb.append("            </div>\n");
-        sb.append("            <div class=\"row\">\n");
-        sb.append("                <div class=\"col-2\"></div>\n");
-        sb.append("                <div class=\"col text-center pt-4\"><a role=\"button\" class=\"btn btn-secondary\" href=\"Game?id=" + id + "&action=down\"><i class=\"bi-arrow-down\"></i></a></div>\n");
-        sb.append("                <div class=\"col-2\"></div>\n");
-        sb.append("            </div>\n");
-        sb.append("            <div class=\"row\">\n");
-        sb.append("                <div class=\"col text-center pt-4\"><a role=\"button\" class=\"btn btn-danger w-75\" href=\"Game?action=new\">New Game</a></div>\n");
-        sb.append("                <div class=\"col text-center pt-4\"><a role=\"button\" class=\"btn btn-info w-75\" href=\"Game?id=" + id + "\">Refresh</a></div>\n");
-        sb.append("            </div>\n");
-        sb.append("        </div>\n");
-        sb.append("        <div class=\"col-4\"></div>\n");
-        sb.append("    </div>\n");
-        sb.append("</body>\n");
-        sb.append("</html>\n");
-
-        return sb.toString();
+    // long batches of moves do not fit into a URL
+    @Override
+    protected void doPost(HttpServletRequest request, HttpServletResponse response) throws ServletException, IOException {
+        doGet(request, response);
     }
 }
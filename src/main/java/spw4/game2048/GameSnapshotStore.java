@@ -0,0 +1,406 @@
+package spw4.game2048;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.lang.System.Logger.Level;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.BiConsumer;
+
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.TRUNCATE_EXISTING;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+// Persists games as fixed-size snapshots in an append-only, memory-mapped log. Request threads
+// only capture a snapshot into a map of pending writes; a background writer appends the latest
+// snapshot of every changed game as one group and forces the log once per group. When the log
+// has grown well beyond the live games, the writer rewrites it with the latest records only.
+public class GameSnapshotStore implements Closeable {
+
+    // record layout: id (16), packed board (8), rng state (8), moves (4), score (4), type (4), check (4)
+    static final int RECORD_SIZE = 48;
+
+    // the type of a live record tells how to restore the generator from the stored state
+    private static final int LIVE = 1;
+    private static final int REMOVED = 2;
+    private static final int LIVE_SPLIT_MIX = 3;
+    private static final int DEFAULT_SEGMENT_RECORDS = 1 << 20;
+    private static final long DEFAULT_MIN_COMPACTION_RECORDS = 1 << 20;
+    private static final Snapshot REMOVED_SNAPSHOT = new Snapshot(REMOVED, 0, 0, 0, 0);
+    private static final System.Logger LOGGER = System.getLogger(GameSnapshotStore.class.getName());
+
+    private final Path file;
+    private final int segmentRecords;
+    private final long minCompactionRecords;
+    private final long commitIntervalNanos;
+    private final ConcurrentHashMap<UUID, Snapshot> pending = new ConcurrentHashMap<>();
+    // removed games by id, each forgotten by the writer once nothing can save its game any more
+    private final ConcurrentHashMap<UUID, RemovedGame> removed = new ConcurrentHashMap<>();
+    private final ReferenceQueue<Game> unreachable = new ReferenceQueue<>();
+    private final Thread writer;
+    private volatile boolean closed;
+
+    // guarded by this
+    private FileChannel channel;
+    private final List<MappedByteBuffer> segments = new ArrayList<>();
+    private long records;
+    private long liveRecords;
+
+    public GameSnapshotStore(Path file, long commitInterval, TimeUnit unit) throws IOException {
+        this(file, commitInterval, unit, DEFAULT_SEGMENT_RECORDS, DEFAULT_MIN_COMPACTION_RECORDS);
+    }
+
+    GameSnapshotStore(Path file, long commitInterval, TimeUnit unit, int segmentRecords,
+                      long minCompactionRecords) throws IOException {
+        if (segmentRecords <= 0)
+            throw new IllegalArgumentException("segmentRecords must be positive");
+        this.file = file;
+        this.segmentRecords = segmentRecords;
+        this.minCompactionRecords = minCompactionRecords;
+        commitIntervalNanos = unit.toNanos(commitInterval);
+        synchronized (this) {
+            open();
+        }
+
+        writer = new Thread(this::writeLoop, "game-snapshot-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    // captures the state of the game, the caller must hold the lock that serializes its moves;
+    // a record holds a default 4x4 game only, other games are not persisted
+    public void save(UUID id, Game game) {
+        if (!GameImpl.isStandard(game))
+            return;
+        TileRandom tileRandom = game instanceof GameImpl ? ((GameImpl) game).getTileRandom() : null;
+        int type = LIVE;
+        long state;
+        if (tileRandom instanceof SplitMixTileRandom) {
+            type = LIVE_SPLIT_MIX;
+            state = ((SplitMixTileRandom) tileRandom).getState();
+        } else {
+            // other generators cannot be read without changing their tiles, so only restored
+            // games continue with a generator seeded from this
+            state = ThreadLocalRandom.current().nextLong();
+        }
+        Snapshot snapshot = new Snapshot(type, Bitboard.of(game), state, game.getMoves(), game.getScore());
+        // atomic with removing the same game, which needs no lock of the game
+        pending.compute(id, (key, previous) -> isRemoved(id, game) ? previous : snapshot);
+    }
+
+    // the game is gone from the store, e.g. evicted; saves of it by requests that still hold it
+    // are ignored from now on
+    public void remove(UUID id, Game game) {
+        pending.compute(id, (key, previous) -> {
+            removed.put(id, new RemovedGame(id, game, unreachable));
+            return REMOVED_SNAPSHOT;
+        });
+    }
+
+    // hands the latest snapshot of every stored game to the consumer, oldest first; call it
+    // before saving anything
+    public synchronized int recover(BiConsumer<UUID, Game> consumer) {
+        long[] slots = index().liveSlots();
+        for (long slot : slots) {
+            ByteBuffer segment = segmentOf(slot);
+            int offset = offsetOf(slot);
+            long state = segment.getLong(offset + 24);
+            GameImpl game = new GameImpl(segment.getInt(offset + 40) == LIVE_SPLIT_MIX
+                    ? new SplitMixTileRandom(state) : new RealTileRandom(state));
+            game.restore(Bitboard.toTiles(segment.getLong(offset + 16)),
+                    segment.getInt(offset + 32), segment.getInt(offset + 36));
+            consumer.accept(new UUID(segment.getLong(offset), segment.getLong(offset + 8)), game);
+        }
+        liveRecords = slots.length;
+        return slots.length;
+    }
+
+    // appends and forces all pending snapshots now instead of with the next group
+    public synchronized void flush() throws IOException {
+        if (pending.isEmpty())
+            return;
+
+        int firstSegment = (int) (records / segmentRecords);
+        int segmentCount = segments.size();
+        for (UUID id : pending.keySet()) {
+            Snapshot snapshot = pending.remove(id);
+            if (snapshot == null)
+                continue;
+            try {
+                append(id, snapshot);
+            } catch (IOException | RuntimeException e) {
+                pending.putIfAbsent(id, snapshot);
+                throw e;
+            }
+        }
+        for (int i = firstSegment; i < segments.size(); i++) {
+            segments.get(i).force();
+        }
+        if (segments.size() != segmentCount)
+            channel.force(true);
+
+        if (records - liveRecords > Math.max(minCompactionRecords, liveRecords))
+            compact();
+    }
+
+    public synchronized long getRecordCount() {
+        return records;
+    }
+
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        LockSupport.unpark(writer);
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (this) {
+            flush();
+            channel.close();
+            segments.clear();
+        }
+    }
+
+    private void writeLoop() {
+        while (!closed) {
+            LockSupport.parkNanos(this, commitIntervalNanos);
+            for (Reference<? extends Game> game; (game = unreachable.poll()) != null; ) {
+                RemovedGame removedGame = (RemovedGame) game;
+                removed.remove(removedGame.id, removedGame);
+            }
+            try {
+                flush();
+            } catch (IOException e) {
+                // the snapshots stay pending and are retried with the next group
+                LOGGER.log(Level.WARNING, "writing snapshots failed", e);
+            }
+        }
+    }
+
+    private boolean isRemoved(UUID id, Game game) {
+        RemovedGame removedGame = removed.get(id);
+        return removedGame != null && removedGame.get() == game;
+    }
+
+    private void open() throws IOException {
+        channel = FileChannel.open(file, CREATE, READ, WRITE);
+        long segmentSize = (long) segmentRecords * RECORD_SIZE;
+        long segmentCount = Math.max(1, (channel.size() + segmentSize - 1) / segmentSize);
+        for (int i = 0; i < segmentCount; i++) {
+            segments.add(channel.map(FileChannel.MapMode.READ_WRITE, i * segmentSize, segmentSize));
+        }
+
+        // the log ends at the first record that was never written or not written completely
+        records = 0;
+        while (records < segmentCount * segmentRecords && isValid(records)) {
+            records++;
+        }
+        liveRecords = records;
+    }
+
+    private void append(UUID id, Snapshot snapshot) throws IOException {
+        int segment = (int) (records / segmentRecords);
+        if (segment == segments.size()) {
+            long segmentSize = (long) segmentRecords * RECORD_SIZE;
+            segments.add(channel.map(FileChannel.MapMode.READ_WRITE, segment * segmentSize, segmentSize));
+        }
+
+        ByteBuffer buffer = segments.get(segment);
+        int offset = offsetOf(records);
+        long msb = id.getMostSignificantBits();
+        long lsb = id.getLeastSignificantBits();
+        int type = snapshot.type;
+        buffer.putLong(offset, msb);
+        buffer.putLong(offset + 8, lsb);
+        buffer.putLong(offset + 16, snapshot.board);
+        buffer.putLong(offset + 24, snapshot.state);
+        buffer.putInt(offset + 32, snapshot.moves);
+        buffer.putInt(offset + 36, snapshot.score);
+        buffer.putInt(offset + 40, type);
+        buffer.putInt(offset + 44, check(msb, lsb, snapshot.board, snapshot.state,
+                snapshot.moves, snapshot.score, type));
+        records++;
+    }
+
+    // rewrites the log with the latest record of every live game and swaps it in atomically
+    private void compact() throws IOException {
+        long[] slots = index().liveSlots();
+        Path compacted = file.resolveSibling(file.getFileName() + ".compact");
+        try (FileChannel out = FileChannel.open(compacted, CREATE, TRUNCATE_EXISTING, WRITE)) {
+            ByteBuffer buffer = ByteBuffer.allocate(1024 * RECORD_SIZE);
+            byte[] record = new byte[RECORD_SIZE];
+            for (long slot : slots) {
+                segmentOf(slot).get(offsetOf(slot), record);
+                buffer.put(record);
+                if (!buffer.hasRemaining())
+                    writeFully(out, buffer);
+            }
+            writeFully(out, buffer);
+            out.force(true);
+        }
+
+        channel.close();
+        segments.clear();
+        Files.move(compacted, file, REPLACE_EXISTING, ATOMIC_MOVE);
+        open();
+        liveRecords = records;
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    private SlotIndex index() {
+        SlotIndex index = new SlotIndex();
+        for (long slot = 0; slot < records; slot++) {
+            ByteBuffer segment = segmentOf(slot);
+            int offset = offsetOf(slot);
+            index.put(segment.getLong(offset), segment.getLong(offset + 8),
+                    segment.getInt(offset + 40) == REMOVED ? -1 : slot);
+        }
+        return index;
+    }
+
+    private boolean isValid(long slot) {
+        ByteBuffer segment = segmentOf(slot);
+        int offset = offsetOf(slot);
+        int type = segment.getInt(offset + 40);
+        return (type == LIVE || type == REMOVED || type == LIVE_SPLIT_MIX) && segment.getInt(offset + 44) == check(
+                segment.getLong(offset), segment.getLong(offset + 8), segment.getLong(offset + 16),
+                segment.getLong(offset + 24), segment.getInt(offset + 32), segment.getInt(offset + 36), type);
+    }
+
+    private ByteBuffer segmentOf(long slot) {
+        return segments.get((int) (slot / segmentRecords));
+    }
+
+    private int offsetOf(long slot) {
+        return (int) (slot % segmentRecords) * RECORD_SIZE;
+    }
+
+    private static int check(long msb, long lsb, long board, long state, int moves, int score, int type) {
+        long hash = mix(type, msb);
+        hash = mix(hash, lsb);
+        hash = mix(hash, board);
+        hash = mix(hash, state);
+        hash = mix(hash, (long) moves << 32 | score & 0xFFFFFFFFL);
+        return (int) (hash ^ (hash >>> 32));
+    }
+
+    private static long mix(long hash, long value) {
+        hash = (hash ^ value) * 0x9E3779B97F4A7C15L;
+        return hash ^ (hash >>> 29);
+    }
+
+    private static final class Snapshot {
+        final int type;
+        final long board;
+        final long state;
+        final int moves;
+        final int score;
+
+        Snapshot(int type, long board, long state, int moves, int score) {
+            this.type = type;
+            this.board = board;
+            this.state = state;
+            this.moves = moves;
+            this.score = score;
+        }
+    }
+
+    // open-addressed map from game id to its latest slot, -1 once removed; plain arrays keep
+    // recovering millions of games free of per-entry objects
+    private static final class SlotIndex {
+        private long[] msbs = new long[1024];
+        private long[] lsbs = new long[1024];
+        private long[] slots = new long[1024];
+        private boolean[] used = new boolean[1024];
+        private int size;
+
+        void put(long msb, long lsb, long slot) {
+            if (2 * (size + 1) > used.length)
+                grow();
+            int index = indexOf(msb, lsb, used.length - 1);
+            if (!used[index]) {
+                used[index] = true;
+                msbs[index] = msb;
+                lsbs[index] = lsb;
+                size++;
+            }
+            slots[index] = slot;
+        }
+
+        long[] liveSlots() {
+            long[] live = new long[size];
+            int count = 0;
+            for (int i = 0; i < used.length; i++) {
+                if (used[i] && slots[i] >= 0)
+                    live[count++] = slots[i];
+            }
+            live = Arrays.copyOf(live, count);
+            Arrays.sort(live);
+            return live;
+        }
+
+        private int indexOf(long msb, long lsb, int mask) {
+            int index = (int) (((msb ^ lsb) * 0x9E3779B97F4A7C15L) >>> 32) & mask;
+            while (used[index] && (msbs[index] != msb || lsbs[index] != lsb)) {
+                index = (index + 1) & mask;
+            }
+            return index;
+        }
+
+        private void grow() {
+            long[] oldMsbs = msbs;
+            long[] oldLsbs = lsbs;
+            long[] oldSlots = slots;
+            boolean[] oldUsed = used;
+            int capacity = 2 * oldUsed.length;
+            msbs = new long[capacity];
+            lsbs = new long[capacity];
+            slots = new long[capacity];
+            used = new boolean[capacity];
+            for (int i = 0; i < oldUsed.length; i++) {
+                if (oldUsed[i]) {
+                    int index = indexOf(oldMsbs[i], oldLsbs[i], capacity - 1);
+                    used[index] = true;
+                    msbs[index] = oldMsbs[i];
+                    lsbs[index] = oldLsbs[i];
+                    slots[index] = oldSlots[i];
+                }
+            }
+        }
+    }
+
+    private static final class RemovedGame extends WeakReference<Game> {
+        final UUID id;
+
+        RemovedGame(UUID id, Game game, ReferenceQueue<Game> queue) {
+            super(game, queue);
+            this.id = id;
+        }
+    }
+}
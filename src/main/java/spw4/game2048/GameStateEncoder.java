@@ -0,0 +1,185 @@
+package spw4.game2048;
+
+import java.util.List;
+import java.util.UUID;
+
+// Encodes the state of a game for API clients instead of a whole page. Tiles are sent as log2
+// exponents in row-major order, 0 meaning an empty cell.
+//
+// JSON: {"id":"...","moves":3,"score":8,"over":false,"won":false,"hint":null,
+//        "legal":["down","right"],"rows":4,"columns":4,"board":[1,0,...]}
+//
+// Binary, BINARY_LENGTH bytes for the default 4x4 board, numbers big-endian:
+//   16 bytes id, rows * columns bytes exponents, 4 bytes moves, 4 bytes score,
+//   1 byte flags (bit 0 over, bit 1 won, bit 2 + ordinal set for every legal direction),
+//   1 byte hint (0 none, otherwise direction ordinal + 1)
+//
+// After a batch of moves both forms additionally carry the number of applied moves and, if
+// requested, the score gained by each of them: "applied":2,"deltas":[0,4] in JSON and a 4 byte
+// count followed by 4 bytes per delta in binary.
+//
+// The leaderboard is JSON only: {"games":1234,"top":[{"score":20000,"moves":900,"won":true},...]}
+// and "percentile":87.5 before the closing brace if a score was given.
+//
+// Not thread-safe, use one per thread.
+public class GameStateEncoder extends ResponseBuffer {
+
+    public static final int BINARY_LENGTH = 42;
+
+    private static final byte[] ID = bytes("{\"id\":\"");
+    private static final byte[] MOVES = bytes("\",\"moves\":");
+    private static final byte[] SCORE = bytes(",\"score\":");
+    private static final byte[] OVER = bytes(",\"over\":");
+    private static final byte[] WON = bytes(",\"won\":");
+    private static final byte[] HINT = bytes(",\"hint\":");
+    private static final byte[] LEGAL = bytes(",\"legal\":[");
+    private static final byte[] ROWS = bytes("],\"rows\":");
+    private static final byte[] COLUMNS = bytes(",\"columns\":");
+    private static final byte[] BOARD = bytes(",\"board\":[");
+    private static final byte[] APPLIED = bytes("],\"applied\":");
+    private static final byte[] DELTAS = bytes(",\"deltas\":[");
+    private static final byte[] END = bytes("]}");
+    private static final byte[] END_OF_OBJECT = bytes("}");
+    private static final byte[] TRUE = bytes("true");
+    private static final byte[] FALSE = bytes("false");
+    private static final byte[] NULL = bytes("null");
+    private static final byte[][] HINTS = new byte[Direction.values().length][];
+
+    private static final byte[] GAMES = bytes("{\"games\":");
+    private static final byte[] TOP = bytes(",\"top\":[");
+    private static final byte[] ENTRY_SCORE = bytes("{\"score\":");
+    private static final byte[] ENTRY_MOVES = bytes(",\"moves\":");
+    private static final byte[] ENTRY_WON = bytes(",\"won\":");
+    private static final byte[] PERCENTILE = bytes("],\"percentile\":");
+
+    static {
+        for (Direction direction : Direction.values()) {
+            HINTS[direction.ordinal()] = bytes("\"" + direction + "\"");
+        }
+    }
+
+    public void encodeJson(UUID id, Game game, Direction hint) {
+        encodeJson(id, game, hint, -1, null);
+    }
+
+    // applied is negative if no batch was played, deltas is null if they were not requested
+    public void encodeJson(UUID id, Game game, Direction hint, int applied, int[] deltas) {
+        reset();
+        boolean over = game.isOver();
+        write(ID);
+        writeId(id);
+        write(MOVES);
+        writeNumber(game.getMoves());
+        write(SCORE);
+        writeNumber(game.getScore());
+        write(OVER);
+        write(over ? TRUE : FALSE);
+        write(WON);
+        write(over && game.isWon() ? TRUE : FALSE);
+        write(HINT);
+        write(hint == null ? NULL : HINTS[hint.ordinal()]);
+        write(LEGAL);
+        int legalMoves = game.getLegalMoves();
+        for (int i = 0; i < HINTS.length; i++) {
+            if ((legalMoves & 1 << i) != 0) {
+                write(HINTS[i]);
+                if ((legalMoves & -2 << i) != 0)
+                    write((byte) ',');
+            }
+        }
+        int rows = game.getRows();
+        int columns = game.getColumns();
+        write(ROWS);
+        writeNumber(rows);
+        write(COLUMNS);
+        writeNumber(columns);
+        write(BOARD);
+        for (int x = 0; x < rows; x++) {
+            for (int y = 0; y < columns; y++) {
+                if (x + y != 0)
+                    write((byte) ',');
+                writeNumber(Bitboard.exponentOf(game.getValueAt(x, y)));
+            }
+        }
+        if (applied < 0) {
+            write(END);
+            return;
+        }
+        write(APPLIED);
+        writeNumber(applied);
+        if (deltas != null) {
+            write(DELTAS);
+            for (int i = 0; i < applied; i++) {
+                if (i != 0)
+                    write((byte) ',');
+                writeNumber(deltas[i]);
+            }
+            write((byte) ']');
+        }
+        write(END_OF_OBJECT);
+    }
+
+    public void encodeBinary(UUID id, Game game, Direction hint) {
+        encodeBinary(id, game, hint, -1, null);
+    }
+
+    // applied is negative if no batch was played, deltas is null if they were not requested
+    public void encodeBinary(UUID id, Game game, Direction hint, int applied, int[] deltas) {
+        reset();
+        int rows = game.getRows();
+        int columns = game.getColumns();
+        ensureCapacity(BINARY_LENGTH - 16 + rows * columns);
+        writeLong(id.getMostSignificantBits());
+        writeLong(id.getLeastSignificantBits());
+        for (int x = 0; x < rows; x++) {
+            for (int y = 0; y < columns; y++) {
+                write((byte) Bitboard.exponentOf(game.getValueAt(x, y)));
+            }
+        }
+        writeInt(game.getMoves());
+        writeInt(game.getScore());
+        boolean over = game.isOver();
+        write((byte) ((over ? 1 : 0) | (over && game.isWon() ? 2 : 0) | game.getLegalMoves() << 2));
+        write((byte) (hint == null ? 0 : hint.ordinal() + 1));
+        if (applied < 0)
+            return;
+        writeInt(applied);
+        if (deltas != null) {
+            for (int i = 0; i < applied; i++) {
+                writeInt(deltas[i]);
+            }
+        }
+    }
+
+    // score is negative if no percentile was asked for
+    public void encodeLeaderboardJson(Leaderboard leaderboard, int score) {
+        reset();
+        write(GAMES);
+        write(bytes(Long.toString(leaderboard.getGames())));
+        write(TOP);
+        List<Leaderboard.Entry> entries = leaderboard.getTop();
+        for (int i = 0; i < entries.size(); i++) {
+            Leaderboard.Entry entry = entries.get(i);
+            if (i != 0)
+                write((byte) ',');
+            write(ENTRY_SCORE);
+            writeNumber(entry.getScore());
+            write(ENTRY_MOVES);
+            writeNumber(entry.getMoves());
+            write(ENTRY_WON);
+            write(entry.isWon() ? TRUE : FALSE);
+            write(END_OF_OBJECT);
+        }
+        if (score < 0) {
+            write(END);
+            return;
+        }
+        // one decimal is all the histogram can tell
+        int tenths = (int) Math.round(leaderboard.getPercentile(score) * 10);
+        write(PERCENTILE);
+        writeNumber(tenths / 10);
+        write((byte) '.');
+        writeNumber(tenths % 10);
+        write(END_OF_OBJECT);
+    }
+}
@@ -0,0 +1,10 @@
+package spw4.game2048;
+
+import java.util.UUID;
+
+public interface GameStore {
+    Game get(UUID id);
+    void put(UUID id, Game game);
+    void remove(UUID id);
+    int size();
+}
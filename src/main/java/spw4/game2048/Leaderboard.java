@@ -0,0 +1,135 @@
+package spw4.game2048;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// Ranks the scores of finished games, submitted by many request threads at once. Nothing here
+// takes a lock: the best games are kept in a skip list bounded to the top size, and a score
+// below the worst of them is turned away after one read. All scores go into a histogram with
+// eight buckets per power of two, kept as a Fenwick tree of atomic counters, so recording a
+// score touches at most 8 counters and asking for its percentile at most 16, however many games
+// finished. Percentiles are exact up to 16 and within the 1/8 wide bucket of the score above.
+public class Leaderboard {
+
+    public static final int DEFAULT_TOP_SIZE = 10;
+
+    private static final int EXACT = 16;
+    private static final int SUB_BUCKET_BITS = 3;
+    private static final int BUCKETS = EXACT + (31 - 4) * (1 << SUB_BUCKET_BITS);
+
+    // a finished game, no id since knowing the id of a game means being able to play it
+    public static final class Entry {
+        private final int score;
+        private final int moves;
+        private final boolean won;
+        private final long sequence;
+
+        Entry(int score, int moves, boolean won, long sequence) {
+            this.score = score;
+            this.moves = moves;
+            this.won = won;
+            this.sequence = sequence;
+        }
+
+        public int getScore() {
+            return score;
+        }
+
+        public int getMoves() {
+            return moves;
+        }
+
+        public boolean isWon() {
+            return won;
+        }
+    }
+
+    // best first, among equal scores the earlier game
+    private static final Comparator<Entry> RANKING = Comparator.comparingInt((Entry entry) -> -entry.score)
+            .thenComparingLong(entry -> entry.sequence);
+
+    private final int topSize;
+    private final ConcurrentSkipListSet<Entry> top = new ConcurrentSkipListSet<>(RANKING);
+    private final AtomicInteger topCount = new AtomicInteger();
+    private final AtomicLong sequence = new AtomicLong();
+    // tree[i] counts the scores in the buckets (i - (i & -i), i], indices start at 1
+    private final AtomicLongArray tree = new AtomicLongArray(BUCKETS + 1);
+    private final AtomicLong games = new AtomicLong();
+
+    public Leaderboard() {
+        this(DEFAULT_TOP_SIZE);
+    }
+
+    public Leaderboard(int topSize) {
+        if (topSize <= 0)
+            throw new IllegalArgumentException("topSize must be positive");
+        this.topSize = topSize;
+    }
+
+    public void submit(Game game) {
+        submit(game.getScore(), game.getMoves(), game.isWon());
+    }
+
+    public void submit(int score, int moves, boolean won) {
+        if (score < 0)
+            throw new IllegalArgumentException("score must not be negative");
+        for (int i = bucketOf(score) + 1; i <= BUCKETS; i += i & -i) {
+            tree.getAndIncrement(i);
+        }
+        games.incrementAndGet();
+
+        // once the list is full, it shrinks only back to the top size, so last() exists
+        if (topCount.get() >= topSize && score <= top.last().score)
+            return;
+        top.add(new Entry(score, moves, won, sequence.getAndIncrement()));
+        if (topCount.incrementAndGet() > topSize && top.pollLast() != null)
+            topCount.decrementAndGet();
+    }
+
+    public long getGames() {
+        return games.get();
+    }
+
+    // the best games, best first
+    public List<Entry> getTop() {
+        List<Entry> entries = new ArrayList<>(topSize);
+        for (Entry entry : top) {
+            if (entries.size() == topSize)
+                break;
+            entries.add(entry);
+        }
+        return entries;
+    }
+
+    // the percentage of finished games that scored less, counting half of those in the same bucket
+    public double getPercentile(int score) {
+        long total = games.get();
+        if (total == 0)
+            return 0;
+        int bucket = bucketOf(Math.max(score, 0));
+        long below = countBelow(bucket);
+        long same = countBelow(bucket + 1) - below;
+        return Math.min(100, 100.0 * (below + same / 2.0) / total);
+    }
+
+    private long countBelow(int bucket) {
+        long count = 0;
+        for (int i = bucket; i > 0; i -= i & -i) {
+            count += tree.get(i);
+        }
+        return count;
+    }
+
+    static int bucketOf(int score) {
+        if (score < EXACT)
+            return score;
+        int exponent = 31 - Integer.numberOfLeadingZeros(score);
+        int subBucket = (score >>> (exponent - SUB_BUCKET_BITS)) & ((1 << SUB_BUCKET_BITS) - 1);
+        return EXACT + ((exponent - 4) << SUB_BUCKET_BITS) + subBucket;
+    }
+}
@@ -1,18 +1,35 @@
 package spw4.game2048;
 
+import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.TimeUnit;
 
 public class Main {
-    public static void main(String[] args) {
+    public static void main(String[] args) throws InterruptedException, IOException {
+        if (args.length > 0 && "simulate".equals(args[0])) {
+            Simulation.main(Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
+        if (args.length > 0 && "book".equals(args[0])) {
+            OpeningBook.main(Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
+        if (args.length > 0 && "serve".equals(args[0])) {
+            GameHttpServer.main(Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
+
         Scanner scanner = new Scanner(System.in);
+        Solver solver = new ExpectimaxSolver(50, TimeUnit.MILLISECONDS);
         String input;
 
-        Game game = new GameImpl();
+        Random seeds = new Random();
+        RecordedGame game = new RecordedGame(seeds.nextLong());
         game.initialize();
         System.out.println(game);
 
         while (!game.isOver()) {
-            System.out.print("command [w, a, s, d, (r)estart, (q)uit, (h)elp] > ");
+            System.out.print("command [w, a, s, d, (m)ove for me, (p)lay for me, (u)ndo, (r)estart, (q)uit, (h)elp] > ");
             input = scanner.nextLine();
 
             switch (input) {
@@ -20,7 +37,11 @@ public class Main {
                 case "a": game.move(Direction.left);             break;
                 case "s": game.move(Direction.down);             break;
                 case "d": game.move(Direction.right);            break;
-                case "r": game.initialize();                     break;
+                case "m": moveForMe(game, solver);               break;
+                case "p": playForMe(game, solver);               break;
+                case "u": undo(game);                            break;
+                case "r": game = new RecordedGame(seeds.nextLong());
+                          game.initialize();                     break;
                 case "q": System.out.println("Ok, bye.");        return;
                 case "h": printHelp();                           break;
                 default:  System.out.println("Unknown command"); break;
@@ -31,6 +52,27 @@ public class Main {
         System.out.println("Your score: " + game.getScore());
     }
 
+    private static void moveForMe(Game game, Solver solver) {
+        Direction direction = solver.findBestMove(game);
+        if (direction != null)
+            game.move(direction);
+    }
+
+    private static void playForMe(Game game, Solver solver) {
+        while (!game.isOver()) {
+            Direction direction = solver.findBestMove(game);
+            if (direction == null)
+                return;
+            game.move(direction);
+            System.out.println(game);
+        }
+    }
+
+    private static void undo(RecordedGame game) {
+        if (!game.undo())
+            System.out.println("Nothing to undo");
+    }
+
     private static void printHelp() {
         System.out.println();
         System.out.println("Available commands:");
@@ -39,6 +81,9 @@ public class Main {
         System.out.println("a --> move left");
         System.out.println("s --> move down");
         System.out.println("d --> move right");
+        System.out.println("m --> let the solver make one move");
+        System.out.println("p --> let the solver play until the game is over");
+        System.out.println("u --> undo the last move");
         System.out.println("r --> restart game");
         System.out.println("q --> quit game");
         System.out.println("h --> show help");
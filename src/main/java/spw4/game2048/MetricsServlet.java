@@ -0,0 +1,27 @@
+package spw4.game2048;
+
+import javax.servlet.ServletException;
+import javax.servlet.annotation.WebServlet;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+// The metrics of GameServlet in the Prometheus text format.
+@WebServlet("/metrics")
+public class MetricsServlet extends HttpServlet {
+
+    @Override
+    protected void doGet(HttpServletRequest request, HttpServletResponse response) throws ServletException, IOException {
+        GameMetrics metrics = (GameMetrics) getServletContext().getAttribute(GameServlet.METRICS_ATTRIBUTE);
+        if (metrics == null) {
+            response.sendError(503, "game servlet not started");
+            return;
+        }
+        StringBuilder text = new StringBuilder(8192);
+        metrics.writePrometheus(text);
+        response.setContentType(GameMetrics.CONTENT_TYPE);
+        response.getOutputStream().write(text.toString().getBytes(StandardCharsets.UTF_8));
+    }
+}
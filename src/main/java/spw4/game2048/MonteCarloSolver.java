@@ -0,0 +1,336 @@
+package spw4.game2048;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.TimeUnit;
+
+// Monte Carlo tree search: every playout walks down a tree of moves and spawned tiles, picking
+// moves by UCB1 and tiles at random, adds the first board it has not seen and finishes the game
+// from there with random moves. A playout is worth the score it gains, and the move whose subtree
+// was played most often wins. Each worker of the pool grows a tree of its own from the current
+// board, so no locks or virtual losses are needed, and the visits of the roots are summed at the
+// end. The search is anytime: it stops at the time budget or after a number of playouts per
+// worker, whatever comes first. The subtrees below the board that follows are kept for the next
+// call, so a solver that plays one game reuses most of its work; concurrent games only miss.
+// Standard games are searched on bitboards, other sizes and targets of GameImpl only choose
+// their first move by playouts on copies of the game.
+public class MonteCarloSolver implements Solver {
+
+    private static final Direction[] DIRECTIONS = Direction.values();
+
+    private static final int DEFAULT_MAX_PLAYOUTS = Integer.MAX_VALUE;
+    private static final int ROLLOUT_MOVES = 200;
+    private static final double EXPLORATION = 1.0;
+
+    private final long timeBudgetNanos;
+    private final int maxPlayouts;
+    private final ForkJoinPool pool;
+    // each search splits a generator per worker off this one, guarded by this
+    private final SplitMixTileRandom seeds;
+    // the roots of the workers' trees after the last search, guarded by this
+    private Node[] retained;
+
+    public MonteCarloSolver() {
+        this(10, TimeUnit.MILLISECONDS);
+    }
+
+    public MonteCarloSolver(long timeBudget, TimeUnit unit) {
+        this(timeBudget, unit, DEFAULT_MAX_PLAYOUTS, ForkJoinPool.commonPool(), new SplitMixTileRandom().nextLong());
+    }
+
+    // playouts per worker, a fixed number with a long time budget and a seed makes moves reproducible
+    // on the same pool
+    public MonteCarloSolver(long timeBudget, TimeUnit unit, int maxPlayouts, ForkJoinPool pool, long seed) {
+        if (maxPlayouts < 1)
+            throw new IllegalArgumentException("maxPlayouts must be at least 1");
+        this.timeBudgetNanos = unit.toNanos(timeBudget);
+        this.maxPlayouts = maxPlayouts;
+        this.pool = pool;
+        this.seeds = new SplitMixTileRandom(seed);
+    }
+
+    @Override
+    public Direction findBestMove(Game game) {
+        if (game instanceof BitboardGame || GameImpl.isStandard(game))
+            return findBestMove(Bitboard.of(game));
+        if (game instanceof GameImpl)
+            return findBestMove((GameImpl) game);
+        throw new IllegalArgumentException("only bitboard games and GameImpl can be searched");
+    }
+
+    Direction findBestMove(long board) {
+        int legalMoves = Bitboard.legalMoves(board);
+        if (legalMoves == 0)
+            return null;
+        if (Integer.bitCount(legalMoves) == 1)
+            return DIRECTIONS[Integer.numberOfTrailingZeros(legalMoves)];
+
+        int workers = pool.getParallelism();
+        Node[] previous;
+        SplitMixTileRandom[] randoms = new SplitMixTileRandom[workers];
+        synchronized (this) {
+            previous = retained;
+            retained = null;
+            for (int i = 0; i < workers; i++) {
+                randoms[i] = seeds.split();
+            }
+        }
+
+        long deadline = System.nanoTime() + timeBudgetNanos;
+        TreeWorker[] tasks = new TreeWorker[workers];
+        for (int i = 0; i < workers; i++) {
+            Node root = previous != null && i < previous.length ? previous[i].find(board) : null;
+            tasks[i] = new TreeWorker(root != null ? root : new Node(board), randoms[i], deadline);
+            pool.execute(tasks[i]);
+        }
+        long[] visits = new long[DIRECTIONS.length];
+        double[] values = new double[DIRECTIONS.length];
+        Node[] roots = new Node[workers];
+        for (int i = 0; i < workers; i++) {
+            tasks[i].join();
+            roots[i] = tasks[i].root;
+            for (int d = 0; d < DIRECTIONS.length; d++) {
+                visits[d] += roots[i].visits[d];
+                values[d] += roots[i].values[d];
+            }
+        }
+        synchronized (this) {
+            retained = roots;
+        }
+        return mostVisited(legalMoves, visits, values);
+    }
+
+    Direction findBestMove(GameImpl game) {
+        int legalMoves = game.getLegalMoves();
+        if (legalMoves == 0)
+            return null;
+        if (Integer.bitCount(legalMoves) == 1)
+            return DIRECTIONS[Integer.numberOfTrailingZeros(legalMoves)];
+
+        int workers = pool.getParallelism();
+        RolloutWorker[] tasks = new RolloutWorker[workers];
+        long deadline = System.nanoTime() + timeBudgetNanos;
+        synchronized (this) {
+            for (int i = 0; i < workers; i++) {
+                tasks[i] = new RolloutWorker(game, legalMoves, seeds.split(), deadline);
+            }
+        }
+        for (RolloutWorker task : tasks) {
+            pool.execute(task);
+        }
+        long[] visits = new long[DIRECTIONS.length];
+        double[] values = new double[DIRECTIONS.length];
+        for (RolloutWorker task : tasks) {
+            task.join();
+            for (int d = 0; d < DIRECTIONS.length; d++) {
+                visits[d] += task.visits[d];
+                values[d] += task.values[d];
+            }
+        }
+        return mostVisited(legalMoves, visits, values);
+    }
+
+    // the legal move played most often, among equally often played ones the one with the best mean
+    private static Direction mostVisited(int legalMoves, long[] visits, double[] values) {
+        int best = -1;
+        for (int d = 0; d < DIRECTIONS.length; d++) {
+            if ((legalMoves & 1 << d) == 0)
+                continue;
+            if (best < 0 || visits[d] > visits[best]
+                    || visits[d] == visits[best] && values[d] * visits[best] > values[best] * visits[d])
+                best = d;
+        }
+        return DIRECTIONS[best];
+    }
+
+    // UCB1 with the exploration scaled to the best mean, since values are scores and not in [0, 1];
+    // untried moves come first
+    private static int select(long[] visits, double[] values, int legalMoves, long total) {
+        double bestMean = 0;
+        for (int d = 0; d < DIRECTIONS.length; d++) {
+            if ((legalMoves & 1 << d) == 0)
+                continue;
+            if (visits[d] == 0)
+                return d;
+            bestMean = Math.max(bestMean, values[d] / visits[d]);
+        }
+        double exploration = EXPLORATION * Math.max(bestMean, 1) * Math.sqrt(Math.log(total));
+        int best = -1;
+        double bestBound = Double.NEGATIVE_INFINITY;
+        for (int d = 0; d < DIRECTIONS.length; d++) {
+            if ((legalMoves & 1 << d) == 0)
+                continue;
+            double bound = values[d] / visits[d] + exploration / Math.sqrt(visits[d]);
+            if (bound > bestBound) {
+                bestBound = bound;
+                best = d;
+            }
+        }
+        return best;
+    }
+
+    private static int randomMove(int legalMoves, SplitMixTileRandom random) {
+        for (int n = random.nextInt(Integer.bitCount(legalMoves)); n > 0; n--) {
+            legalMoves &= legalMoves - 1;
+        }
+        return Integer.numberOfTrailingZeros(legalMoves);
+    }
+
+    // a board where the player moves next, with the statistics of its moves by direction ordinal
+    private static final class Node {
+        final long board;
+        final int legalMoves;
+        // null for illegal moves
+        final Edge[] edges = new Edge[4];
+        final long[] visits = new long[4];
+        final double[] values = new double[4];
+        long totalVisits;
+
+        Node(long board) {
+            this.board = board;
+            legalMoves = Bitboard.legalMoves(board);
+            for (Direction direction : DIRECTIONS) {
+                if ((legalMoves & 1 << direction.ordinal()) != 0)
+                    edges[direction.ordinal()] = new Edge(board, direction);
+            }
+        }
+
+        // the node of the board, if it is this one or follows it after one move and spawn
+        Node find(long board) {
+            if (board == this.board)
+                return this;
+            for (Edge edge : edges) {
+                Node node = edge == null ? null : edge.outcomes.get(board);
+                if (node != null)
+                    return node;
+            }
+            return null;
+        }
+    }
+
+    // a move from a board and the boards its spawns have led to
+    private static final class Edge {
+        final long moved;
+        final int gain;
+        final HashMap<Long, Node> outcomes = new HashMap<>();
+
+        Edge(long board, Direction direction) {
+            moved = Bitboard.move(board, direction);
+            gain = Bitboard.score(board, direction);
+        }
+    }
+
+    private final class TreeWorker extends RecursiveAction {
+        final Node root;
+        final SplitMixTileRandom random;
+        final long deadline;
+        // the nodes and moves of the current playout
+        private Node[] path = new Node[64];
+        private int[] moves = new int[64];
+
+        TreeWorker(Node root, SplitMixTileRandom random, long deadline) {
+            this.root = root;
+            this.random = random;
+            this.deadline = deadline;
+        }
+
+        @Override
+        protected void compute() {
+            for (int playouts = 0; playouts < maxPlayouts && System.nanoTime() - deadline < 0; playouts++) {
+                playout();
+            }
+        }
+
+        private void playout() {
+            Node node = root;
+            int depth = 0;
+            double value = 0;
+            while (node.legalMoves != 0) {
+                if (depth == path.length) {
+                    path = Arrays.copyOf(path, 2 * depth);
+                    moves = Arrays.copyOf(moves, 2 * depth);
+                }
+                int move = select(node.visits, node.values, node.legalMoves, node.totalVisits);
+                Edge edge = node.edges[move];
+                path[depth] = node;
+                moves[depth++] = move;
+                long spawned = spawn(edge.moved);
+                Node next = edge.outcomes.get(spawned);
+                if (next == null) {
+                    edge.outcomes.put(spawned, new Node(spawned));
+                    value = rollout(spawned);
+                    break;
+                }
+                node = next;
+            }
+
+            // every move adds its own gain to the value of the rest of the game
+            while (depth > 0) {
+                node = path[--depth];
+                int move = moves[depth];
+                value += node.edges[move].gain;
+                node.visits[move]++;
+                node.values[move] += value;
+                node.totalVisits++;
+            }
+        }
+
+        private long spawn(long board) {
+            int exponent = random.getRandomValue() == 4 ? 2 : 1;
+            return Bitboard.spawn(board, random.nextInt(Bitboard.countEmpty(board)), exponent);
+        }
+
+        // the score of random moves from the board until the game is over or long enough
+        private double rollout(long board) {
+            double score = 0;
+            for (int i = 0; i < ROLLOUT_MOVES; i++) {
+                int legalMoves = Bitboard.legalMoves(board);
+                if (legalMoves == 0)
+                    break;
+                Direction direction = DIRECTIONS[randomMove(legalMoves, random)];
+                score += Bitboard.score(board, direction);
+                board = spawn(Bitboard.move(board, direction));
+            }
+            return score;
+        }
+    }
+
+    // a bandit over the first move, every playout finishes a copy of the game with random moves,
+    // which records no flight events
+    private final class RolloutWorker extends RecursiveAction {
+        final GameImpl game;
+        final GameImpl copy;
+        final int legalMoves;
+        final SplitMixTileRandom random;
+        final long deadline;
+        final long[] visits = new long[4];
+        final double[] values = new double[4];
+
+        RolloutWorker(GameImpl game, int legalMoves, SplitMixTileRandom random, long deadline) {
+            this.game = game;
+            this.legalMoves = legalMoves;
+            this.random = random;
+            this.deadline = deadline;
+            copy = new GameImpl(game, random);
+        }
+
+        @Override
+        protected void compute() {
+            for (long playouts = 0; playouts < maxPlayouts && System.nanoTime() - deadline < 0; playouts++) {
+                int first = select(visits, values, legalMoves, playouts);
+                copy.copyFrom(game);
+                copy.moveWithoutEvents(DIRECTIONS[first]);
+                for (int i = 1; i < ROLLOUT_MOVES && !copy.isOver(); i++) {
+                    int moves = copy.getLegalMoves();
+                    if (moves == 0)
+                        break;
+                    copy.moveWithoutEvents(DIRECTIONS[randomMove(moves, random)]);
+                }
+                visits[first]++;
+                values[first] += copy.getScore() - game.getScore();
+            }
+        }
+    }
+}
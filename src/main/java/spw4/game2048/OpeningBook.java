@@ -0,0 +1,219 @@
+package spw4.game2048;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static java.nio.file.StandardOpenOption.READ;
+
+// Best moves for the openings of standard games, looked up before falling back to a live search.
+// Games start from one of a few hundred boards, so their first moves repeat across players. The
+// book holds every board reachable within a number of moves, searched offline by expectimax to a
+// fixed depth without a time budget. A board and its 7 rotations and reflections share one entry,
+// stored under the canonical board of BoardSymmetry. The file is an open-addressed hash table that is memory
+// mapped, so a lookup reads one or two slots of the page cache and no heap is needed for it.
+public class OpeningBook implements Solver {
+
+    static final int DEFAULT_PLIES = 2;
+    static final int DEFAULT_DEPTH = 4;
+
+    // header: magic, version, log2 of the slot count, entries, plies, depth, then 8 bytes reserved
+    private static final int MAGIC = 0x32303438;
+    private static final int VERSION = 2;
+    private static final int HEADER_SIZE = 32;
+    // slot: canonical board (8), expected value (4), direction ordinal (4); an empty board marks a
+    // free slot, no game ever has one
+    private static final int SLOT_SIZE = 16;
+    private static final int MAX_LOG2_SLOTS = 26;
+
+    private static final Direction[] DIRECTIONS = Direction.values();
+
+    private final MappedByteBuffer table;
+    private final int mask;
+    private final int entries;
+    private final Solver fallback;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    public OpeningBook(Path file, Solver fallback) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, READ)) {
+            long size = channel.size();
+            if (size < HEADER_SIZE)
+                throw new IOException("not an opening book: " + file);
+            // the mapping stays valid after the channel is closed
+            table = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            if (table.getInt(0) != MAGIC || table.getInt(4) != VERSION)
+                throw new IOException("not an opening book: " + file);
+            int log2Slots = table.getInt(8);
+            if (log2Slots < 0 || log2Slots > MAX_LOG2_SLOTS || size != HEADER_SIZE + ((long) SLOT_SIZE << log2Slots))
+                throw new IOException("truncated opening book: " + file);
+            mask = (1 << log2Slots) - 1;
+            // a free slot ends the probes for boards the book does not have
+            entries = table.getInt(12);
+            if (entries < 0 || entries > mask)
+                throw new IOException("corrupt opening book: " + file);
+        }
+        this.fallback = fallback;
+    }
+
+    // OpeningBook <file> [plies [depth]]
+    public static void main(String[] args) throws IOException {
+        int plies = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_PLIES;
+        int depth = args.length > 2 ? Integer.parseInt(args[2]) : DEFAULT_DEPTH;
+        long start = System.nanoTime();
+        int entries = generate(Path.of(args[0]), plies, depth);
+        System.out.printf("wrote %d boards up to %d moves deep into %s after %d s%n",
+                entries, plies, args[0], TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - start));
+    }
+
+    @Override
+    public Direction findBestMove(Game game) {
+        if (GameImpl.isStandard(game)) {
+            Direction direction = lookup(Bitboard.of(game));
+            if (direction != null)
+                return direction;
+        }
+        return fallback.findBestMove(game);
+    }
+
+    // the best move for the board, null if the book does not have it
+    Direction lookup(long board) {
+        int symmetry = BoardSymmetry.canonicalSymmetry(board);
+        int slot = find(BoardSymmetry.transform(board, symmetry));
+        if (slot < 0) {
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return BoardSymmetry.restore(DIRECTIONS[table.getInt(slot + 12)], symmetry);
+    }
+
+    // the expected heuristic value after the best move, NaN if the book does not have the board
+    float getValue(long board) {
+        int slot = find(BoardSymmetry.canonical(board));
+        return slot < 0 ? Float.NaN : table.getFloat(slot + 8);
+    }
+
+    public int getEntries() {
+        return entries;
+    }
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    // the offset of the slot holding the canonical board, -1 if there is none; probes every slot
+    // at most once, should a damaged book have no free one
+    private int find(long canonical) {
+        int i = indexOf(canonical, mask);
+        for (int probes = 0; probes <= mask; probes++, i = (i + 1) & mask) {
+            int slot = HEADER_SIZE + i * SLOT_SIZE;
+            long stored = table.getLong(slot);
+            if (stored == canonical)
+                return slot;
+            if (stored == 0)
+                return -1;
+        }
+        return -1;
+    }
+
+    private static int indexOf(long board, int mask) {
+        return (int) BoardSymmetry.mix(board) & mask;
+    }
+
+    // searches every board reachable within plies moves, writes the book and returns its entries
+    static int generate(Path file, int plies, int depth) throws IOException {
+        ExpectimaxSolver solver = new ExpectimaxSolver(1, TimeUnit.DAYS, depth, ForkJoinPool.commonPool());
+        Set<Long> seen = new HashSet<>();
+        Set<Long> level = new HashSet<>();
+        for (int i = 0; i < 16; i++) {
+            for (int j = i + 1; j < 16; j++) {
+                for (long first = 1; first <= 2; first++) {
+                    for (long second = 1; second <= 2; second++) {
+                        level.add(BoardSymmetry.canonical(first << (4 * i) | second << (4 * j)));
+                    }
+                }
+            }
+        }
+        seen.addAll(level);
+
+        long[] boards = new long[0];
+        float[] values = new float[0];
+        int[] directions = new int[0];
+        int count = 0;
+        for (int ply = 0; ; ply++) {
+            Set<Long> next = new HashSet<>();
+            for (long board : level) {
+                ExpectimaxSolver.Analysis analysis = solver.analyze(board);
+                if (analysis == null)
+                    continue;
+                if (count == boards.length) {
+                    int capacity = Math.max(1024, 2 * count);
+                    boards = Arrays.copyOf(boards, capacity);
+                    values = Arrays.copyOf(values, capacity);
+                    directions = Arrays.copyOf(directions, capacity);
+                }
+                boards[count] = board;
+                values[count] = analysis.value;
+                directions[count] = analysis.direction.ordinal();
+                count++;
+
+                if (ply == plies)
+                    continue;
+                for (Direction direction : DIRECTIONS) {
+                    long moved = Bitboard.move(board, direction);
+                    if (moved == board)
+                        continue;
+                    for (long empty = Bitboard.emptyMask(moved); empty != 0; empty &= empty - 1) {
+                        int shift = Long.numberOfTrailingZeros(empty);
+                        for (long exponent = 1; exponent <= 2; exponent++) {
+                            long spawned = BoardSymmetry.canonical(moved | exponent << shift);
+                            if (seen.add(spawned))
+                                next.add(spawned);
+                        }
+                    }
+                }
+            }
+            if (ply == plies)
+                break;
+            level = next;
+        }
+
+        int log2Slots = Math.max(4, 64 - Long.numberOfLeadingZeros(2L * count - 1));
+        if (log2Slots > MAX_LOG2_SLOTS)
+            throw new IllegalArgumentException(count + " boards do not fit into a book, use fewer plies");
+        int slotMask = (1 << log2Slots) - 1;
+        ByteBuffer out = ByteBuffer.allocate(HEADER_SIZE + (SLOT_SIZE << log2Slots));
+        out.putInt(0, MAGIC).putInt(4, VERSION).putInt(8, log2Slots).putInt(12, count)
+                .putInt(16, plies).putInt(20, depth);
+        for (int n = 0; n < count; n++) {
+            int i = indexOf(boards[n], slotMask);
+            while (out.getLong(HEADER_SIZE + i * SLOT_SIZE) != 0) {
+                i = (i + 1) & slotMask;
+            }
+            int slot = HEADER_SIZE + i * SLOT_SIZE;
+            out.putLong(slot, boards[n]).putFloat(slot + 8, values[n]).putInt(slot + 12, directions[n]);
+        }
+
+        // a reader never sees a partly written book
+        Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        Files.write(temporary, out.array());
+        Files.move(temporary, file, REPLACE_EXISTING, ATOMIC_MOVE);
+        return count;
+    }
+}
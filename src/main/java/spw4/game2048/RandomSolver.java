@@ -0,0 +1,31 @@
+package spw4.game2048;
+
+import java.util.Random;
+
+// Picks a uniformly random move among those that change the board.
+public class RandomSolver implements Solver {
+
+    private static final Direction[] DIRECTIONS = Direction.values();
+
+    private final Random random;
+
+    public RandomSolver() {
+        random = new Random();
+    }
+
+    public RandomSolver(long seed) {
+        random = new Random(seed);
+    }
+
+    @Override
+    public Direction findBestMove(Game game) {
+        int possibleMoves = game.getLegalMoves();
+        if (possibleMoves == 0)
+            return null;
+
+        for (int n = random.nextInt(Integer.bitCount(possibleMoves)); n > 0; n--) {
+            possibleMoves &= possibleMoves - 1;
+        }
+        return DIRECTIONS[Integer.numberOfTrailingZeros(possibleMoves)];
+    }
+}
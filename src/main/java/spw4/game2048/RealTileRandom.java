@@ -4,12 +4,22 @@ import java.util.Random;
 
 public class RealTileRandom implements TileRandom {
 
+    static final int FOUR_ODDS = 10;
+
     private Random random;
 
     public RealTileRandom() {
         random = new Random();
     }
 
+    public RealTileRandom(long seed) {
+        random = new Random(seed);
+    }
+
+    public void setSeed(long seed) {
+        random.setSeed(seed);
+    }
+
     @Override
     public int getRandomPosition(int numberOfFreeTiles) {
         return random.nextInt(numberOfFreeTiles);
@@ -17,7 +27,7 @@ public class RealTileRandom implements TileRandom {
 
     @Override
     public int getRandomValue() {
-        int i = random.nextInt(9);
+        int i = random.nextInt(FOUR_ODDS);
         // returns 4 in 1 of 10 cases
         if (i != 0)
             return 2;
@@ -0,0 +1,173 @@
+package spw4.game2048;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+// Records a game as its seed and a log of 2-bit moves, so it can be replayed exactly, shared
+// and rewound. Every checkpoint interval the board and the generator state are stored, so
+// seeking replays less than one interval.
+public class RecordedGame implements Game {
+
+    static final int DEFAULT_CHECKPOINT_INTERVAL = 64;
+
+    private static final Direction[] DIRECTIONS = Direction.values();
+
+    private final long seed;
+    private final int checkpointInterval;
+    private final SplitMixTileRandom tileRandom = new SplitMixTileRandom(0);
+    private final BitboardGame game = new BitboardGame(tileRandom);
+
+    // four moves per byte, move i in bits 2 * (i % 4) of byte i / 4
+    private byte[] log = new byte[64];
+    private int length;
+
+    // checkpoint k is the state after k * checkpointInterval moves
+    private long[] checkpointBoards = new long[8];
+    private int[] checkpointScores = new int[8];
+    private long[] checkpointStates = new long[8];
+    private int checkpoints;
+
+    public RecordedGame(long seed) {
+        this(seed, DEFAULT_CHECKPOINT_INTERVAL);
+    }
+
+    public RecordedGame(long seed, int checkpointInterval) {
+        if (checkpointInterval <= 0)
+            throw new IllegalArgumentException("checkpointInterval must be positive");
+        this.seed = seed;
+        this.checkpointInterval = checkpointInterval;
+    }
+
+    // replays a recording created by toBytes
+    public static RecordedGame fromBytes(byte[] bytes) {
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        RecordedGame recorded = new RecordedGame(buffer.getLong(), buffer.getInt());
+        int length = buffer.getInt();
+        if (length < 0 || buffer.remaining() < (length + 3) / 4)
+            throw new IllegalArgumentException("truncated recording");
+
+        recorded.initialize();
+        byte[] log = new byte[(length + 3) / 4];
+        buffer.get(log);
+        for (int i = 0; i < length; i++) {
+            recorded.move(DIRECTIONS[log[i >> 2] >> ((i & 3) << 1) & 3]);
+        }
+        return recorded;
+    }
+
+    // seed, checkpoint interval, number of moves and the packed move log
+    public byte[] toBytes() {
+        int logLength = (length + 3) / 4;
+        return ByteBuffer.allocate(16 + logLength)
+                .putLong(seed).putInt(checkpointInterval).putInt(length)
+                .put(log, 0, logLength)
+                .array();
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    public Direction getMove(int index) {
+        if (index < 0 || index >= length)
+            throw new IndexOutOfBoundsException(index);
+        return DIRECTIONS[log[index >> 2] >> ((index & 3) << 1) & 3];
+    }
+
+    // a copy of the game as it was after the given number of moves
+    public Game replay(int moves) {
+        SplitMixTileRandom replayRandom = new SplitMixTileRandom(0);
+        BitboardGame replayed = new BitboardGame(replayRandom);
+        seek(replayed, replayRandom, moves);
+        return replayed;
+    }
+
+    // rewinds the game to the given number of moves and forgets the moves after it
+    public void rewind(int moves) {
+        seek(game, tileRandom, moves);
+        length = moves;
+        checkpoints = moves / checkpointInterval + 1;
+    }
+
+    public boolean undo() {
+        if (length == 0)
+            return false;
+        rewind(length - 1);
+        return true;
+    }
+
+    public int getMoves() {
+        return game.getMoves();
+    }
+
+    public int getScore() {
+        return game.getScore();
+    }
+
+    public int getValueAt(int x, int y) {
+        return game.getValueAt(x, y);
+    }
+
+    public boolean isOver() {
+        return game.isOver();
+    }
+
+    public boolean isWon() {
+        return game.isWon();
+    }
+
+    @Override
+    public int getLegalMoves() {
+        return game.getLegalMoves();
+    }
+
+    @Override
+    public String toString() {
+        return game.toString();
+    }
+
+    // starts over with the same seed, so the same moves yield the same game again
+    public void initialize() {
+        tileRandom.setState(seed);
+        game.restore(0, 0, 0);
+        game.initialize();
+        length = 0;
+        checkpoints = 0;
+        checkpoint();
+    }
+
+    public boolean move(Direction direction) {
+        boolean changed = game.move(direction);
+        if (length == log.length * 4)
+            log = Arrays.copyOf(log, 2 * log.length);
+        int shift = (length & 3) << 1;
+        log[length >> 2] = (byte) (log[length >> 2] & ~(3 << shift) | direction.ordinal() << shift);
+        length++;
+        if (length % checkpointInterval == 0)
+            checkpoint();
+        return changed;
+    }
+
+    private void checkpoint() {
+        if (checkpoints == checkpointBoards.length) {
+            checkpointBoards = Arrays.copyOf(checkpointBoards, 2 * checkpoints);
+            checkpointScores = Arrays.copyOf(checkpointScores, 2 * checkpoints);
+            checkpointStates = Arrays.copyOf(checkpointStates, 2 * checkpoints);
+        }
+        checkpointBoards[checkpoints] = game.getBoard();
+        checkpointScores[checkpoints] = game.getScore();
+        checkpointStates[checkpoints] = tileRandom.getState();
+        checkpoints++;
+    }
+
+    private void seek(BitboardGame target, SplitMixTileRandom targetRandom, int moves) {
+        if (moves < 0 || moves > length)
+            throw new IndexOutOfBoundsException(moves);
+        int checkpoint = moves / checkpointInterval;
+        target.restore(checkpointBoards[checkpoint], checkpoint * checkpointInterval, checkpointScores[checkpoint]);
+        targetRandom.setState(checkpointStates[checkpoint]);
+        for (int i = checkpoint * checkpointInterval; i < moves; i++) {
+            target.move(getMove(i));
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package spw4.game2048;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+
+// A growable byte buffer for building responses without allocating per request. Subclasses
+// reuse one instance per thread.
+class ResponseBuffer {
+
+    private static final byte[] HEX_DIGITS = bytes("0123456789abcdef");
+
+    byte[] buffer = new byte[8192];
+    int length;
+
+    static byte[] bytes(String s) {
+        return s.getBytes(StandardCharsets.UTF_8);
+    }
+
+    void reset() {
+        length = 0;
+    }
+
+    public void writeTo(OutputStream out) throws IOException {
+        out.write(buffer, 0, length);
+    }
+
+    @Override
+    public String toString() {
+        return new String(buffer, 0, length, StandardCharsets.UTF_8);
+    }
+
+    void ensureCapacity(int additional) {
+        if (length + additional > buffer.length) {
+            byte[] grown = new byte[Math.max(buffer.length * 2, length + additional)];
+            System.arraycopy(buffer, 0, grown, 0, length);
+            buffer = grown;
+        }
+    }
+
+    void write(byte[] bytes) {
+        ensureCapacity(bytes.length);
+        System.arraycopy(bytes, 0, buffer, length, bytes.length);
+        length += bytes.length;
+    }
+
+    void write(byte value) {
+        ensureCapacity(1);
+        buffer[length++] = value;
+    }
+
+    void writeInt(int value) {
+        ensureCapacity(4);
+        for (int shift = 24; shift >= 0; shift -= 8) {
+            buffer[length++] = (byte) (value >>> shift);
+        }
+    }
+
+    void writeLong(long value) {
+        writeInt((int) (value >>> 32));
+        writeInt((int) value);
+    }
+
+    void writeNumber(int value) {
+        ensureCapacity(11);
+        long remaining = value;
+        if (remaining < 0) {
+            buffer[length++] = '-';
+            remaining = -remaining;
+        }
+        int digits = 1;
+        for (long limit = 10; remaining >= limit && digits < 10; limit *= 10) {
+            digits++;
+        }
+        for (int i = length + digits - 1; i >= length; i--) {
+            buffer[i] = (byte) ('0' + remaining % 10);
+            remaining /= 10;
+        }
+        length += digits;
+    }
+
+    // same format as UUID.toString()
+    void writeId(UUID id) {
+        ensureCapacity(36);
+        writeHex(id.getMostSignificantBits() >>> 32, 8);
+        buffer[length++] = '-';
+        writeHex(id.getMostSignificantBits() >>> 16, 4);
+        buffer[length++] = '-';
+        writeHex(id.getMostSignificantBits(), 4);
+        buffer[length++] = '-';
+        writeHex(id.getLeastSignificantBits() >>> 48, 4);
+        buffer[length++] = '-';
+        writeHex(id.getLeastSignificantBits(), 12);
+    }
+
+    void writeHex(long value, int digits) {
+        for (int i = length + digits - 1; i >= length; i--) {
+            buffer[i] = HEX_DIGITS[(int) value & 0xF];
+            value >>>= 4;
+        }
+        length += digits;
+    }
+}
@@ -0,0 +1,130 @@
+package spw4.game2048;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongFunction;
+import java.util.stream.IntStream;
+
+// Plays complete games headlessly on a fork-join pool. Every game gets its own generator stream
+// derived from the base seed and the game number, and its results are stored by game number, so
+// the outcome does not depend on the number of threads or on scheduling.
+public class Simulation {
+
+    private final int games;
+    private final int threads;
+    private final long baseSeed;
+    private final LongFunction<Solver> policy;
+
+    private final LongAdder completedGames = new LongAdder();
+    private final LongAdder completedMoves = new LongAdder();
+
+    private int[] scores;
+    private int[] moves;
+    private byte[] maxExponents;
+    private boolean[] won;
+
+    // the policy gets the seed of the game, so randomized policies can be reproducible as well
+    public Simulation(int games, int threads, long baseSeed, LongFunction<Solver> policy) {
+        if (games <= 0 || threads <= 0)
+            throw new IllegalArgumentException("games and threads must be positive");
+        this.games = games;
+        this.threads = threads;
+        this.baseSeed = baseSeed;
+        this.policy = policy;
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        int games = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        long seed = args.length > 2 ? Long.parseLong(args[2]) : 2048;
+        String policyName = args.length > 3 ? args[3] : "random";
+
+        LongFunction<Solver> policy;
+        switch (policyName) {
+            case "random":
+                policy = RandomSolver::new;
+                break;
+            case "expectimax":
+                // a fixed depth instead of a time budget keeps the moves reproducible
+                Solver solver = new ExpectimaxSolver(1, TimeUnit.DAYS, 2, ForkJoinPool.commonPool());
+                policy = gameSeed -> solver;
+                break;
+            case "mcts":
+                // one solver per game keeps its subtrees, and fixed playouts keep the moves reproducible
+                policy = gameSeed -> new MonteCarloSolver(1, TimeUnit.DAYS, 200, ForkJoinPool.commonPool(), gameSeed);
+                break;
+            default:
+                System.out.println("Unknown policy " + policyName + ", use random, expectimax or mcts");
+                return;
+        }
+
+        System.out.println("Simulating " + games + " games on " + threads + " threads with seed " + seed
+                + " and policy " + policyName);
+        SimulationResult result = new Simulation(games, threads, seed, policy).run(true);
+        System.out.println(result);
+    }
+
+    public SimulationResult run() throws InterruptedException {
+        return run(false);
+    }
+
+    private SimulationResult run(boolean printProgress) throws InterruptedException {
+        scores = new int[games];
+        moves = new int[games];
+        maxExponents = new byte[games];
+        won = new boolean[games];
+        completedGames.reset();
+        completedMoves.reset();
+
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        long start = System.nanoTime();
+        try {
+            ForkJoinTask<?> task = pool.submit(() -> IntStream.range(0, games).parallel().forEach(this::play));
+            while (true) {
+                try {
+                    task.get(1, TimeUnit.SECONDS);
+                    break;
+                } catch (TimeoutException e) {
+                    if (printProgress)
+                        printProgress(start);
+                } catch (ExecutionException e) {
+                    throw new IllegalStateException("simulation failed", e.getCause());
+                }
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        return new SimulationResult(scores, moves, maxExponents, won, System.nanoTime() - start);
+    }
+
+    private void printProgress(long start) {
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("%d/%d games, %.0f moves/s%n",
+                completedGames.sum(), games, completedMoves.sum() / seconds);
+    }
+
+    private void play(int index) {
+        SplitMixTileRandom tileRandom = SplitMixTileRandom.forStream(baseSeed, index);
+        Solver solver = policy.apply(tileRandom.getState());
+
+        BitboardGame game = new BitboardGame(tileRandom);
+        game.initialize();
+        while (!game.isOver()) {
+            Direction direction = solver.findBestMove(game);
+            if (direction == null)
+                break;
+            game.move(direction);
+        }
+
+        scores[index] = game.getScore();
+        moves[index] = game.getMoves();
+        maxExponents[index] = (byte) Bitboard.maxExponent(game.getBoard());
+        won[index] = game.isWon();
+        completedGames.increment();
+        completedMoves.add(game.getMoves());
+    }
+}
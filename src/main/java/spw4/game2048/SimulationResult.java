@@ -0,0 +1,92 @@
+package spw4.game2048;
+
+import java.util.Arrays;
+
+public class SimulationResult {
+
+    private final int[] sortedScores;
+    private final long[] maxTileHistogram = new long[Bitboard.MAX_EXPONENT + 1];
+    private final long totalScore;
+    private final long totalMoves;
+    private final int wins;
+    private final long elapsedNanos;
+
+    SimulationResult(int[] scores, int[] moves, byte[] maxExponents, boolean[] won, long elapsedNanos) {
+        sortedScores = scores.clone();
+        Arrays.sort(sortedScores);
+
+        long totalScore = 0;
+        long totalMoves = 0;
+        int wins = 0;
+        for (int i = 0; i < scores.length; i++) {
+            totalScore += scores[i];
+            totalMoves += moves[i];
+            maxTileHistogram[maxExponents[i]]++;
+            if (won[i])
+                wins++;
+        }
+        this.totalScore = totalScore;
+        this.totalMoves = totalMoves;
+        this.wins = wins;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    public int getGames() {
+        return sortedScores.length;
+    }
+
+    public double getWinRate() {
+        return (double) wins / getGames();
+    }
+
+    public double getMeanScore() {
+        return (double) totalScore / getGames();
+    }
+
+    public int getMinScore() {
+        return sortedScores[0];
+    }
+
+    public int getMaxScore() {
+        return sortedScores[sortedScores.length - 1];
+    }
+
+    // nearest-rank percentile, percentile in [0, 100]
+    public int getScorePercentile(double percentile) {
+        int rank = (int) Math.ceil(percentile / 100 * sortedScores.length);
+        return sortedScores[Math.max(0, Math.min(sortedScores.length - 1, rank - 1))];
+    }
+
+    // number of games that ended with the given tile as their highest tile
+    public long getMaxTileCount(int tile) {
+        int exponent = Bitboard.exponentOf(tile);
+        return exponent < maxTileHistogram.length ? maxTileHistogram[exponent] : 0;
+    }
+
+    public long getTotalMoves() {
+        return totalMoves;
+    }
+
+    public double getMovesPerSecond() {
+        return totalMoves / (elapsedNanos / 1e9);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("Games: ").append(getGames()).append("   ")
+                .append("Moves: ").append(totalMoves).append("   ")
+                .append(String.format("Moves/s: %.0f", getMovesPerSecond())).append("\n");
+        sb.append(String.format("Win rate: %.2f%%", 100 * getWinRate())).append("\n");
+        sb.append(String.format("Score: min %d   p50 %d   p90 %d   p99 %d   max %d   mean %.1f",
+                getMinScore(), getScorePercentile(50), getScorePercentile(90), getScorePercentile(99),
+                getMaxScore(), getMeanScore())).append("\n");
+        sb.append("Max tile:\n");
+        for (int exponent = 1; exponent < maxTileHistogram.length; exponent++) {
+            if (maxTileHistogram[exponent] != 0) {
+                sb.append(String.format("%6d     %d%n", Bitboard.valueOf(exponent), maxTileHistogram[exponent]));
+            }
+        }
+        return sb.toString();
+    }
+}
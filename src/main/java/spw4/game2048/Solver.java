@@ -0,0 +1,6 @@
+package spw4.game2048;
+
+public interface Solver {
+    // returns null if no move changes the board
+    Direction findBestMove(Game game);
+}
@@ -0,0 +1,98 @@
+package spw4.game2048;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+// A SplitMix64 generator: the whole state is one long that advances by a constant, each draw
+// is a few shifts and multiplies without any synchronization. Streams derived from a base seed
+// or split off another generator are independent, and the state can be read and restored, e.g.
+// for snapshots. Bounded draws are unbiased, so a 4 spawns with exactly the configured
+// probability. Not thread-safe, use one per game or worker.
+public class SplitMixTileRandom implements TileRandom {
+
+    public static final int DEFAULT_FOUR_NUMERATOR = 1;
+    public static final int DEFAULT_FOUR_DENOMINATOR = 10;
+
+    private static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+
+    private long state;
+    private final int fourNumerator;
+    private final int fourDenominator;
+
+    public SplitMixTileRandom() {
+        this(ThreadLocalRandom.current().nextLong());
+    }
+
+    public SplitMixTileRandom(long state) {
+        this(state, DEFAULT_FOUR_NUMERATOR, DEFAULT_FOUR_DENOMINATOR);
+    }
+
+    // a 4 spawns with probability fourNumerator / fourDenominator, a 2 otherwise
+    public SplitMixTileRandom(long state, int fourNumerator, int fourDenominator) {
+        if (fourDenominator <= 0 || fourNumerator < 0 || fourNumerator > fourDenominator)
+            throw new IllegalArgumentException("the probability of a 4 must be between 0 and 1");
+        this.state = state;
+        this.fourNumerator = fourNumerator;
+        this.fourDenominator = fourDenominator;
+    }
+
+    // the stream-th of the independent generators derived from a base seed, e.g. one per game
+    public static SplitMixTileRandom forStream(long baseSeed, long stream) {
+        return new SplitMixTileRandom(streamState(baseSeed, stream));
+    }
+
+    static long streamState(long baseSeed, long stream) {
+        return mix(baseSeed + (stream + 1) * GOLDEN_GAMMA);
+    }
+
+    // a new generator with the same distribution that is independent of this one from now on
+    public SplitMixTileRandom split() {
+        return new SplitMixTileRandom(mix(nextLong()), fourNumerator, fourDenominator);
+    }
+
+    public long getState() {
+        return state;
+    }
+
+    public void setState(long state) {
+        this.state = state;
+    }
+
+    public double getProbabilityOfFour() {
+        return (double) fourNumerator / fourDenominator;
+    }
+
+    @Override
+    public int getRandomPosition(int numberOfFreeTiles) {
+        return nextInt(numberOfFreeTiles);
+    }
+
+    @Override
+    public int getRandomValue() {
+        return nextInt(fourDenominator) < fourNumerator ? 4 : 2;
+    }
+
+    public long nextLong() {
+        return mix(state += GOLDEN_GAMMA);
+    }
+
+    // uniform in [0, bound), Lemire's multiply and shift with rejection of the biased remainder
+    public int nextInt(int bound) {
+        if (bound <= 0)
+            throw new IllegalArgumentException("bound must be positive");
+        long product = (nextLong() >>> 32) * bound;
+        if (Integer.compareUnsigned((int) product, bound) < 0) {
+            int threshold = Integer.remainderUnsigned(-bound, bound);
+            while (Integer.compareUnsigned((int) product, threshold) < 0) {
+                product = (nextLong() >>> 32) * bound;
+            }
+        }
+        return (int) (product >>> 32);
+    }
+
+    // SplitMix64 finalizer
+    static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
@@ -0,0 +1,57 @@
+package spw4.game2048;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletContext;
+import javax.servlet.ServletException;
+import javax.servlet.annotation.WebFilter;
+import javax.servlet.http.HttpFilter;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+// Serves the files built by AssetPipeline: fingerprinted files may be cached for good, others
+// are revalidated every time, and clients that accept gzip get the precompressed variant. On
+// Tomcat that variant is handed to sendfile, so it goes from the page cache to the socket
+// without passing through the JVM; everything else is left to the container's default servlet.
+@WebFilter(urlPatterns = {"/css/*", "/js/*", "/icons/*"})
+public class StaticAssetFilter extends HttpFilter {
+
+    @Override
+    protected void doFilter(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws IOException, ServletException {
+        String path = request.getServletPath() + (request.getPathInfo() == null ? "" : request.getPathInfo());
+        response.setHeader("Cache-Control",
+                AssetPipeline.isFingerprinted(path) ? AssetPipeline.IMMUTABLE : AssetPipeline.REVALIDATE);
+
+        ServletContext context = getServletContext();
+        URL compressed = context.getResource(path + ".gz");
+        if (compressed == null || !"GET".equals(request.getMethod())) {
+            chain.doFilter(request, response);
+            return;
+        }
+        response.setHeader("Vary", "Accept-Encoding");
+        if (!AssetPipeline.acceptsGzip(request.getHeader("Accept-Encoding"))) {
+            chain.doFilter(request, response);
+            return;
+        }
+
+        response.setContentType(context.getMimeType(path));
+        response.setHeader("Content-Encoding", "gzip");
+        String file = context.getRealPath(path + ".gz");
+        if (file != null && Boolean.TRUE.equals(request.getAttribute("org.apache.tomcat.sendfile.support"))) {
+            long length = Files.size(Path.of(file));
+            response.setContentLengthLong(length);
+            request.setAttribute("org.apache.tomcat.sendfile.filename", file);
+            request.setAttribute("org.apache.tomcat.sendfile.start", 0L);
+            request.setAttribute("org.apache.tomcat.sendfile.end", length);
+            return;
+        }
+        try (InputStream in = compressed.openStream()) {
+            in.transferTo(response.getOutputStream());
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package spw4.game2048;
+
+import java.util.Arrays;
+
+// Open-addressed, always-replace cache from packed board to search value. Not thread-safe,
+// every search thread owns its table. Each entry is tagged with the generation it was stored in
+// and the search depth, so clearing the table is a counter increment.
+final class TranspositionTable {
+
+    private static final int MAX_GENERATION = (1 << 23) - 1;
+
+    private final long[] boards;
+    private final float[] values;
+    private final int[] tags;
+    private final int mask;
+    private int generation = 1;
+
+    TranspositionTable(int log2Capacity) {
+        int capacity = 1 << log2Capacity;
+        boards = new long[capacity];
+        values = new float[capacity];
+        tags = new int[capacity];
+        mask = capacity - 1;
+    }
+
+    void clear() {
+        if (generation == MAX_GENERATION) {
+            Arrays.fill(tags, 0);
+            generation = 0;
+        }
+        generation++;
+    }
+
+    // returns NaN unless the board was stored in this generation with at least the given depth
+    float get(long board, int depth) {
+        int index = indexOf(board);
+        int tag = tags[index];
+        if (boards[index] != board || tag >>> 8 != generation || (tag & 0xFF) < depth)
+            return Float.NaN;
+        return values[index];
+    }
+
+    void put(long board, int depth, float value) {
+        int index = indexOf(board);
+        boards[index] = board;
+        values[index] = value;
+        tags[index] = generation << 8 | depth;
+    }
+
+    private int indexOf(long board) {
+        long hash = board * 0x9E3779B97F4A7C15L;
+        return (int) (hash >>> 32) & mask;
+    }
+}
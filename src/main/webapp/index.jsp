@@ -5,7 +5,6 @@
     <title>2048</title>
     <link href="css/bootstrap.min.css" rel="stylesheet"/>
     <link href="icons/bootstrap-icons.css" rel="stylesheet"/>
-    <script src="js/bootstrap.min.js"></script>
 </head>
 <body>
 <h1 class="m-5 text-center">Play 2048:</h1>
@@ -0,0 +1,98 @@
+// Plays moves through the JSON API and updates the board in place instead of reloading the page.
+// Without JavaScript the arrow links keep working as plain page loads.
+(function () {
+    var board = document.getElementById('board');
+    if (!board || !window.fetch) return;
+
+    var tiles = board.querySelectorAll('.bg-light');
+    var moves = document.getElementById('moves');
+    var score = document.getElementById('score');
+    var keys = {ArrowUp: 'up', ArrowDown: 'down', ArrowLeft: 'left', ArrowRight: 'right'};
+    var links = {};
+    var busy = false;
+
+    document.querySelectorAll('a[href*="&action="]').forEach(function (link) {
+        var action = new URL(link.href).searchParams.get('action');
+        if (action in {up: 1, down: 1, left: 1, right: 1}) {
+            links[action] = link;
+            link.addEventListener('click', function (event) {
+                event.preventDefault();
+                move(link.href);
+            });
+        }
+    });
+
+    document.addEventListener('keydown', function (event) {
+        var link = links[keys[event.key]];
+        if (link) {
+            event.preventDefault();
+            move(link.href);
+        }
+    });
+
+    function move(href) {
+        if (busy) return;
+        busy = true;
+        fetch(href + '&format=json')
+            .then(function (response) {
+                if (!response.ok) throw new Error(response.statusText);
+                return response.json();
+            })
+            .then(function (state) {
+                if (state.over) {
+                    // the final page shows the result banner
+                    window.location.href = href.replace(/&action=\w+/, '');
+                    return;
+                }
+                showStatus(state);
+                for (var i = 0; i < tiles.length; i++) {
+                    showTile(i, state.board[i]);
+                }
+            })
+            .catch(function () {
+                window.location.href = href;
+            })
+            .finally(function () {
+                busy = false;
+            });
+    }
+
+    function showStatus(state) {
+        moves.textContent = state.moves;
+        score.textContent = state.score;
+    }
+
+    function showTile(i, exponent) {
+        tiles[i].textContent = exponent === 0 ? 0 : 1 << exponent;
+    }
+
+    // follows moves made elsewhere, e.g. by the player a spectator is watching, the server
+    // only sends the changed cells after the first state
+    if (window.EventSource && links.up) {
+        var id = new URL(links.up.href).searchParams.get('id');
+        var events = new EventSource('Game?id=' + encodeURIComponent(id) + '&action=watch');
+        events.addEventListener('state', function (event) {
+            var state = JSON.parse(event.data);
+            if (state.over) {
+                events.close();
+                return;
+            }
+            showStatus(state);
+            for (var i = 0; i < tiles.length; i++) {
+                showTile(i, state.board[i]);
+            }
+        });
+        events.addEventListener('delta', function (event) {
+            var delta = JSON.parse(event.data);
+            if (delta.over) {
+                events.close();
+                window.location.href = 'Game?id=' + encodeURIComponent(id);
+                return;
+            }
+            showStatus(delta);
+            for (var i = 0; i < delta.changed.length; i += 2) {
+                showTile(delta.changed[i], delta.changed[i + 1]);
+            }
+        });
+    }
+})();
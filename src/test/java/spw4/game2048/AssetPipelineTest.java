@@ -0,0 +1,102 @@
+package spw4.game2048;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AssetPipelineTest {
+
+    @TempDir
+    Path source;
+
+    @TempDir
+    Path target;
+
+    @Test
+    public void testPruneKeepsRulesOfUsedClassesOnly() {
+        String css = "/*! license */html{color:red}.row{margin:0}.card{border:0}.row .card,.row>.col{padding:0}";
+
+        String pruned = AssetPipeline.prune(css, Set.of("row", "col"));
+
+        assertEquals("/*! license */\nhtml{color:red}.row{margin:0}.row>.col{padding:0}", pruned);
+    }
+
+    @Test
+    public void testPruneDropsEmptyMediaAndKeepsFontFaces() {
+        String css = "@media (min-width:576px){.card{width:1px}}@media print{.row{display:none}}"
+                + "@font-face{font-family:\"x{\";src:url(a.woff)}/* map */";
+
+        String pruned = AssetPipeline.prune(css, Set.of("row"));
+
+        assertEquals("@media print{.row{display:none}}@font-face{font-family:\"x{\";src:url(a.woff)}", pruned);
+    }
+
+    @Test
+    public void testPruneIgnoresClassesInNegationsAndAttributes() {
+        String css = ".btn:not(.disabled){cursor:pointer}[class*=\" bi-\"]::before{display:inline-block}";
+
+        assertEquals(css, AssetPipeline.prune(css, Set.of("btn")));
+    }
+
+    @Test
+    public void testBuildFingerprintsCompressesAndRewritesReferences() throws IOException {
+        Files.writeString(source.resolve("index.jsp"),
+                "<link href=\"css/site.css\" rel=\"stylesheet\"/><a href=\"Game?action=new\" class=\"row\">");
+        Files.createDirectories(source.resolve("css/fonts"));
+        Files.writeString(source.resolve("css/site.css"),
+                ".row{background:url('fonts/icons.woff2?v=1')}" + ".unused{margin:0}".repeat(100));
+        Files.write(source.resolve("css/fonts/icons.woff2"), new byte[]{1, 2, 3});
+        Files.writeString(source.resolve("css/site.css.map"), "{}");
+
+        AssetPipeline pipeline = new AssetPipeline(source, target);
+        pipeline.build();
+
+        Map<String, String> assets = pipeline.getAssets();
+        String css = assets.get("css/site.css");
+        String font = assets.get("css/fonts/icons.woff2");
+        assertTrue(AssetPipeline.isFingerprinted(css));
+        assertTrue(AssetPipeline.isFingerprinted(font));
+        assertFalse(assets.containsKey("css/site.css.map"));
+        String content = Files.readString(target.resolve(css));
+        assertEquals(".row{background:url(\"fonts/" + Path.of(font).getFileName() + "\")}", content);
+        assertArrayEquals(new byte[]{1, 2, 3}, Files.readAllBytes(target.resolve(font)));
+        assertTrue(Files.readString(target.resolve("index.jsp")).contains("href=\"" + css + "\""));
+        try (InputStream in = Files.newInputStream(target.resolve(AssetPipeline.MANIFEST))) {
+            assertEquals(assets, AssetPipeline.readManifest(in));
+        }
+    }
+
+    @Test
+    public void testBuildWritesSmallerGzipVariantOfTextAssets() throws IOException {
+        Files.writeString(source.resolve("index.jsp"), "<script src=\"game.js\"></script><script src=\"tiny.js\"></script>");
+        Files.writeString(source.resolve("game.js"), "var board = 0;\n".repeat(100));
+        Files.writeString(source.resolve("tiny.js"), ";");
+
+        AssetPipeline pipeline = new AssetPipeline(source, target);
+        pipeline.build();
+
+        Path game = target.resolve(pipeline.getAssets().get("game.js"));
+        try (InputStream in = new GZIPInputStream(Files.newInputStream(Path.of(game + ".gz")))) {
+            assertArrayEquals(Files.readAllBytes(game), in.readAllBytes());
+        }
+        assertFalse(Files.exists(Path.of(target.resolve(pipeline.getAssets().get("tiny.js")) + ".gz")));
+    }
+
+    @Test
+    public void testAcceptsGzipHonorsZeroQuality() {
+        assertTrue(AssetPipeline.acceptsGzip("gzip, deflate, br"));
+        assertTrue(AssetPipeline.acceptsGzip("br;q=1.0, gzip;q=0.8"));
+        assertFalse(AssetPipeline.acceptsGzip("gzip;q=0"));
+        assertFalse(AssetPipeline.acceptsGzip("identity"));
+        assertFalse(AssetPipeline.acceptsGzip(null));
+    }
+}
@@ -0,0 +1,62 @@
+package spw4.game2048;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+
+public class BitboardGameTest extends GameImplTest {
+
+    @Override
+    protected Game createGame(TileRandom tileRandom) {
+        return new BitboardGame(tileRandom);
+    }
+
+    @Test
+    public void testRandomPlayYieldsSameGamesAsGameImpl() {
+        Random directions = new Random(42);
+
+        for (int seed = 0; seed < 50; seed++) {
+            Game expected = new GameImpl(seededTileRandom(seed));
+            Game actual = new BitboardGame(seededTileRandom(seed));
+            expected.initialize();
+            actual.initialize();
+
+            while (!expected.isOver()) {
+                Direction direction = Direction.values()[directions.nextInt(4)];
+                expected.move(direction);
+                actual.move(direction);
+
+                assertEquals(expected.toString(), actual.toString());
+                assertEquals(expected.isOver(), actual.isOver());
+                assertEquals(expected.isWon(), actual.isWon());
+            }
+        }
+    }
+
+    @Test
+    public void testIsStandardYieldsWhetherWinningTileIs2048() {
+        assertEquals(2048, new BitboardGame(mock(TileRandom.class)).getWinningTile());
+        assertTrue(GameImpl.isStandard(new BitboardGame(mock(TileRandom.class))));
+        assertFalse(GameImpl.isStandard(new BitboardGame(1024, mock(TileRandom.class))));
+    }
+
+    private static TileRandom seededTileRandom(long seed) {
+        Random random = new Random(seed);
+        return new TileRandom() {
+            @Override
+            public int getRandomPosition(int numberOfFreeTiles) {
+                return random.nextInt(numberOfFreeTiles);
+            }
+
+            @Override
+            public int getRandomValue() {
+                return random.nextInt(10) == 0 ? 4 : 2;
+            }
+        };
+    }
+}
@@ -0,0 +1,110 @@
+package spw4.game2048;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+public class BoardSymmetryTest {
+
+    // exponents 1 to 3 at (0, 0), (0, 1) and (1, 0), no symmetry maps it onto itself
+    private static final long BOARD = 1L | 2L << 4 | 3L << 16;
+
+    private static long randomBoard(Random random) {
+        long board = 0;
+        for (int shift = 0; shift < 64; shift += 4) {
+            board |= (long) random.nextInt(12) << shift;
+        }
+        return board;
+    }
+
+    @Test
+    public void testTransformYieldsEightDistinctVariants() {
+        Set<Long> variants = new HashSet<>();
+        for (int symmetry = 0; symmetry < BoardSymmetry.COUNT; symmetry++) {
+            variants.add(BoardSymmetry.transform(BOARD, symmetry));
+        }
+
+        assertEquals(8, variants.size());
+        assertEquals(BOARD, BoardSymmetry.transform(BOARD, BoardSymmetry.IDENTITY));
+    }
+
+    @Test
+    public void testTransformYieldsRotatedAndMirroredBoards() {
+        int[][] tiles = Bitboard.toTiles(BOARD);
+
+        int[][] mirroredColumns = Bitboard.toTiles(BoardSymmetry.transform(BOARD, 2));
+        int[][] mirroredRows = Bitboard.toTiles(BoardSymmetry.transform(BOARD, 4));
+        for (int x = 0; x < 4; x++) {
+            for (int y = 0; y < 4; y++) {
+                assertEquals(tiles[x][y], mirroredColumns[x][3 - y]);
+                assertEquals(tiles[x][y], mirroredRows[3 - x][y]);
+            }
+        }
+    }
+
+    @Test
+    public void testCanonicalYieldsSmallestVariantForAllVariants() {
+        Random random = new Random(42);
+        for (int i = 0; i < 1000; i++) {
+            long board = randomBoard(random);
+            long smallest = board;
+            for (int symmetry = 0; symmetry < BoardSymmetry.COUNT; symmetry++) {
+                long variant = BoardSymmetry.transform(board, symmetry);
+                if (Long.compareUnsigned(variant, smallest) < 0)
+                    smallest = variant;
+            }
+
+            for (int symmetry = 0; symmetry < BoardSymmetry.COUNT; symmetry++) {
+                long variant = BoardSymmetry.transform(board, symmetry);
+                assertEquals(smallest, BoardSymmetry.canonical(variant));
+                assertEquals(smallest, BoardSymmetry.transform(variant, BoardSymmetry.canonicalSymmetry(variant)));
+                assertEquals(BoardSymmetry.hash(board), BoardSymmetry.hash(variant));
+            }
+        }
+    }
+
+    @Test
+    public void testTransformedDirectionYieldsSameMove() {
+        Random random = new Random(7);
+        for (int i = 0; i < 200; i++) {
+            long board = randomBoard(random);
+            for (int symmetry = 0; symmetry < BoardSymmetry.COUNT; symmetry++) {
+                long variant = BoardSymmetry.transform(board, symmetry);
+                for (Direction direction : Direction.values()) {
+                    Direction transformed = BoardSymmetry.transform(direction, symmetry);
+
+                    assertEquals(BoardSymmetry.transform(Bitboard.move(board, direction), symmetry),
+                            Bitboard.move(variant, transformed));
+                    assertEquals(direction, BoardSymmetry.restore(transformed, symmetry));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testHashYieldsDifferentValuesForDifferentBoards() {
+        Set<Long> canonicals = new HashSet<>();
+        Set<Long> hashes = new HashSet<>();
+        Random random = new Random(1);
+        for (int i = 0; i < 10_000; i++) {
+            long board = randomBoard(random);
+            canonicals.add(BoardSymmetry.canonical(board));
+            hashes.add(BoardSymmetry.hash(board));
+        }
+
+        assertEquals(canonicals.size(), hashes.size());
+    }
+
+    @Test
+    public void testHashOfGameYieldsHashOfBoard() {
+        GameImpl game = new GameImpl(mock(TileRandom.class));
+        game.restore(Bitboard.toTiles(BOARD), 0, 0);
+
+        assertEquals(BoardSymmetry.hash(BOARD), BoardSymmetry.hash(game));
+    }
+}
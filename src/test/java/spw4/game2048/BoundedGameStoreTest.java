@@ -0,0 +1,116 @@
+package spw4.game2048;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class BoundedGameStoreTest {
+
+    private long now;
+
+    private BoundedGameStore createStore(int maximumSize) {
+        return new BoundedGameStore(maximumSize, 10, TimeUnit.MINUTES, 1, () -> now);
+    }
+
+    @Test
+    public void testGetAfterPutYieldsGameAndCountsHit() {
+        BoundedGameStore store = createStore(10);
+        UUID id = UUID.randomUUID();
+        Game game = new GameImpl();
+
+        store.put(id, game);
+
+        assertSame(game, store.get(id));
+        assertEquals(1, store.getHitCount());
+        assertEquals(0, store.getMissCount());
+    }
+
+    @Test
+    public void testGetUnknownIdYieldsNullAndCountsMiss() {
+        BoundedGameStore store = createStore(10);
+
+        assertNull(store.get(UUID.randomUUID()));
+        assertEquals(1, store.getMissCount());
+    }
+
+    @Test
+    public void testPutBeyondMaximumSizeEvictsLeastRecentlyUsedGame() {
+        BoundedGameStore store = createStore(1);
+        UUID first = UUID.randomUUID();
+        UUID second = UUID.randomUUID();
+
+        store.put(first, new GameImpl());
+        store.put(second, new GameImpl());
+
+        assertEquals(1, store.size());
+        assertNull(store.get(first));
+        assertNotNull(store.get(second));
+        assertEquals(1, store.getEvictionCount());
+    }
+
+    @Test
+    public void testPutBeyondMaximumSizeEvictsFinishedGameFirst() {
+        BoundedGameStore store = createStore(2);
+        UUID running = UUID.randomUUID();
+        UUID finished = UUID.randomUUID();
+        UUID added = UUID.randomUUID();
+        Game finishedGame = mock(Game.class);
+        when(finishedGame.isOver()).thenReturn(true);
+
+        store.put(running, new GameImpl());
+        store.put(finished, finishedGame);
+        store.put(added, new GameImpl());
+
+        assertNull(store.get(finished));
+        assertNotNull(store.get(running));
+    }
+
+    @Test
+    public void testGetAfterIdleTimeoutYieldsNull() {
+        BoundedGameStore store = createStore(10);
+        UUID id = UUID.randomUUID();
+        store.put(id, new GameImpl());
+
+        now += TimeUnit.MINUTES.toNanos(10);
+
+        assertNull(store.get(id));
+        assertEquals(1, store.getEvictionCount());
+    }
+
+    @Test
+    public void testCleanUpRemovesIdleGames() {
+        BoundedGameStore store = createStore(10);
+        store.put(UUID.randomUUID(), new GameImpl());
+        store.put(UUID.randomUUID(), new GameImpl());
+
+        now += TimeUnit.MINUTES.toNanos(11);
+        store.cleanUp();
+
+        assertEquals(0, store.size());
+        assertEquals(2, store.getEvictionCount());
+    }
+
+    @Test
+    public void testEvictionNotifiesListener() {
+        BoundedGameStore store = createStore(1);
+        UUID first = UUID.randomUUID();
+        Game firstGame = new GameImpl();
+        List<UUID> evicted = new ArrayList<>();
+        store.setEvictionListener((id, game) -> {
+            assertSame(firstGame, game);
+            evicted.add(id);
+        });
+
+        store.put(first, firstGame);
+        store.put(UUID.randomUUID(), new GameImpl());
+
+        assertEquals(List.of(first), evicted);
+    }
+}
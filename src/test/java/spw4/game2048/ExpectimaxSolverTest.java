@@ -0,0 +1,90 @@
+package spw4.game2048;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class ExpectimaxSolverTest {
+
+    @Test
+    public void testFindBestMoveWithNoPossibleMoveYieldsNull() {
+        Game game = mock(Game.class);
+        when(game.getRows()).thenReturn(4);
+        when(game.getColumns()).thenReturn(4);
+        when(game.getValueAt(anyInt(), anyInt())).thenAnswer(invocation -> {
+            int x = invocation.getArgument(0);
+            int y = invocation.getArgument(1);
+            return (x + y) % 2 == 0 ? 2 : 4;
+        });
+
+        assertNull(new ExpectimaxSolver().findBestMove(game));
+    }
+
+    @Test
+    public void testFindBestMoveWithSingleMovableTileYieldsPossibleMove() {
+        Game game = mock(Game.class);
+        when(game.getRows()).thenReturn(4);
+        when(game.getColumns()).thenReturn(4);
+        when(game.getValueAt(0, 0)).thenReturn(2);
+
+        Direction direction = new ExpectimaxSolver().findBestMove(game);
+
+        assertTrue(direction == Direction.down || direction == Direction.right);
+    }
+
+    @Test
+    public void testFindBestMoveWithTileAbove32768Throws() {
+        GameImpl game = new GameImpl(4, 4, 131072, mock(TileRandom.class));
+        game.restore(new int[][] {
+                {65536, 2, 0, 0},
+                {0, 0, 0, 0},
+                {0, 0, 0, 0},
+                {0, 0, 0, 0}}, 0, 0);
+
+        assertThrows(IllegalArgumentException.class, () -> new ExpectimaxSolver().findBestMove(game));
+    }
+
+    @Test
+    public void testFindBestMoveReturnsWithinTimeBudget() {
+        ExpectimaxSolver solver = new ExpectimaxSolver(10, TimeUnit.MILLISECONDS, 20, ForkJoinPool.commonPool());
+        Game game = new GameImpl();
+        game.initialize();
+
+        long start = System.nanoTime();
+        assertNotNull(solver.findBestMove(game));
+
+        assertTrue(System.nanoTime() - start < TimeUnit.MILLISECONDS.toNanos(500));
+    }
+
+    @Test
+    public void testSolverPlaysBetterThanRandomMoves() {
+        ExpectimaxSolver solver = new ExpectimaxSolver(1, TimeUnit.MINUTES, 2, ForkJoinPool.commonPool());
+        Random random = new Random(7);
+        TileRandom tileRandom = new TileRandom() {
+            @Override
+            public int getRandomPosition(int numberOfFreeTiles) {
+                return random.nextInt(numberOfFreeTiles);
+            }
+
+            @Override
+            public int getRandomValue() {
+                return random.nextInt(10) == 0 ? 4 : 2;
+            }
+        };
+        Game game = new BitboardGame(tileRandom);
+        game.initialize();
+
+        while (!game.isOver()) {
+            game.move(solver.findBestMove(game));
+        }
+
+        assertTrue(game.getScore() > 5000, "score " + game.getScore());
+    }
+}
@@ -0,0 +1,119 @@
+package spw4.game2048;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+public class FlightEventsTest {
+
+    @TempDir
+    Path directory;
+
+    private List<RecordedEvent> record(Runnable action) throws IOException {
+        Path file = directory.resolve("recording.jfr");
+        try (Recording recording = new Recording()) {
+            for (String name : List.of("GameCreated", "Move", "GameOver", "GameEvicted")) {
+                recording.enable("spw4.game2048." + name);
+            }
+            recording.start();
+            action.run();
+            recording.stop();
+            recording.dump(file);
+        }
+        return RecordingFile.readAllEvents(file).stream()
+                .filter(event -> event.getEventType().getName().startsWith("spw4.game2048."))
+                .collect(Collectors.toList());
+    }
+
+    @Test
+    public void testWinningMoveYieldsMoveAndGameOverEvents() throws IOException {
+        GameImpl game = new GameImpl(4, 4, 8, mock(TileRandom.class));
+        game.restore(new int[][] {
+                {4, 4, 2, 2},
+                {0, 0, 0, 0},
+                {0, 0, 0, 0},
+                {0, 0, 0, 0}}, 3, 12);
+
+        List<RecordedEvent> events = record(() -> game.move(Direction.left));
+
+        assertEquals(2, events.size());
+        RecordedEvent move = events.get(0);
+        assertEquals("spw4.game2048.Move", move.getEventType().getName());
+        assertEquals("left", move.getString("direction"));
+        assertTrue(move.getBoolean("changed"));
+        assertEquals(12, move.getInt("scoreDelta"));
+        assertEquals(2, move.getInt("tilesMerged"));
+        assertEquals(4, move.getInt("moves"));
+        RecordedEvent over = events.get(1);
+        assertEquals("spw4.game2048.GameOver", over.getEventType().getName());
+        assertTrue(over.getBoolean("won"));
+        assertEquals(24, over.getInt("score"));
+    }
+
+    @Test
+    public void testMoveWithoutEventsYieldsNothing() throws IOException {
+        GameImpl game = new GameImpl(4, 4, 8, mock(TileRandom.class));
+        game.restore(new int[][] {
+                {4, 4, 2, 2},
+                {0, 0, 0, 0},
+                {0, 0, 0, 0},
+                {0, 0, 0, 0}}, 3, 12);
+
+        List<RecordedEvent> events = record(() -> game.moveWithoutEvents(Direction.left));
+
+        assertTrue(events.isEmpty());
+        assertTrue(game.isWon());
+    }
+
+    @Test
+    public void testInitializeYieldsGameCreatedEvent() throws IOException {
+        GameImpl game = new GameImpl(5, 6, 1024, new SplitMixTileRandom(1));
+
+        List<RecordedEvent> events = record(game::initialize);
+
+        assertEquals(1, events.size());
+        assertEquals(5, events.get(0).getInt("rows"));
+        assertEquals(6, events.get(0).getInt("columns"));
+        assertEquals(1024, events.get(0).getInt("winningTile"));
+    }
+
+    @Test
+    public void testFullStoreYieldsGameEvictedEvent() throws IOException {
+        BoundedGameStore games = new BoundedGameStore(1, 1, TimeUnit.MINUTES);
+        games.put(new UUID(0, 1), new GameImpl());
+
+        List<RecordedEvent> events = record(() -> games.put(new UUID(0, 2), new GameImpl()));
+
+        assertEquals(1, events.size());
+        assertFalse(events.get(0).getBoolean("idle"));
+        assertFalse(events.get(0).getBoolean("finished"));
+    }
+
+    @Test
+    public void testDisabledEventsYieldNothing() throws IOException {
+        Path file = directory.resolve("recording.jfr");
+        try (Recording recording = new Recording()) {
+            recording.start();
+            GameImpl game = new GameImpl(new SplitMixTileRandom(1));
+            game.initialize();
+            game.move(Direction.up);
+            recording.stop();
+            recording.dump(file);
+        }
+
+        assertTrue(RecordingFile.readAllEvents(file).stream()
+                .noneMatch(event -> event.getEventType().getName().startsWith("spw4.game2048.")));
+    }
+}
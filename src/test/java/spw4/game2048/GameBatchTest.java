@@ -0,0 +1,118 @@
+package spw4.game2048;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class GameBatchTest {
+
+    private static final long SEED = 2048;
+
+    private static BitboardGame[] createGames(int size, long seed) {
+        BitboardGame[] games = new BitboardGame[size];
+        for (int i = 0; i < size; i++) {
+            games[i] = new BitboardGame(SplitMixTileRandom.forStream(seed, i));
+            games[i].initialize();
+        }
+        return games;
+    }
+
+    private static byte[] directions(int size, int step) {
+        byte[] directions = new byte[size];
+        for (int i = 0; i < size; i++) {
+            directions[i] = (byte) ((i + step * 3 + step / 5) % 4);
+        }
+        return directions;
+    }
+
+    private static void assertSameGames(BitboardGame[] expected, GameBatch batch) {
+        for (int i = 0; i < expected.length; i++) {
+            assertEquals(expected[i].getBoard(), batch.getBoard(i));
+            assertEquals(expected[i].getScore(), batch.getScore(i));
+            assertEquals(expected[i].getMoves(), batch.getMoves(i));
+            assertEquals(expected[i].isOver(), batch.getDone()[i]);
+            assertEquals(expected[i].getLegalMoves(), batch.getLegalMoves()[i]);
+        }
+    }
+
+    private static void stepBoth(BitboardGame[] games, GameBatch batch, int steps) {
+        for (int step = 0; step < steps; step++) {
+            byte[] directions = directions(games.length, step);
+            batch.step(directions);
+            for (int i = 0; i < games.length; i++) {
+                int score = games[i].getScore();
+                if (!games[i].isOver())
+                    games[i].move(Direction.values()[directions[i]]);
+                assertEquals(games[i].getScore() - score, batch.getRewards()[i]);
+            }
+        }
+    }
+
+    @Test
+    public void testNewBatchYieldsSameGamesAsBitboardGames() {
+        assertSameGames(createGames(16, SEED), new GameBatch(16, SEED));
+    }
+
+    @Test
+    public void testStepYieldsSameGamesAsBitboardGames() {
+        BitboardGame[] games = createGames(16, SEED);
+        GameBatch batch = new GameBatch(16, SEED);
+
+        stepBoth(games, batch, 300);
+
+        assertSameGames(games, batch);
+    }
+
+    @Test
+    public void testParallelStepYieldsSameGamesAsBitboardGames() {
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            BitboardGame[] games = createGames(100, SEED);
+            GameBatch batch = new GameBatch(100, SEED, pool, 7);
+
+            stepBoth(games, batch, 300);
+
+            assertSameGames(games, batch);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void testStepOnFinishedGameYieldsNoReward() {
+        GameBatch batch = new GameBatch(1, SEED);
+        for (int step = 0; !batch.getDone()[0]; step++) {
+            batch.step(directions(1, step));
+        }
+        int moves = batch.getMoves(0);
+
+        batch.step(new byte[1]);
+
+        assertEquals(0, batch.getRewards()[0]);
+        assertEquals(moves, batch.getMoves(0));
+    }
+
+    @Test
+    public void testResetStartsNextEpisodeOnNewStream() {
+        GameBatch batch = new GameBatch(4, SEED);
+        batch.step(directions(4, 0));
+
+        batch.reset(2);
+
+        BitboardGame expected = new BitboardGame(SplitMixTileRandom.forStream(SEED, 4 + 2));
+        expected.initialize();
+        assertEquals(expected.getBoard(), batch.getBoard(2));
+        assertEquals(0, batch.getMoves(2));
+        assertEquals(0, batch.getScore(2));
+        assertEquals(1, batch.getMoves(1));
+    }
+
+    @Test
+    public void testStepWithTooFewDirectionsThrows() {
+        GameBatch batch = new GameBatch(4, SEED);
+
+        assertThrows(IllegalArgumentException.class, () -> batch.step(new byte[3]));
+    }
+}
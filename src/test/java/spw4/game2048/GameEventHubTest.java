@@ -0,0 +1,187 @@
+package spw4.game2048;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class GameEventHubTest {
+
+    private GameEventHub hub;
+    private UUID id;
+    private GameImpl game;
+
+    private static class RecordingSubscriber implements GameEventHub.Subscriber {
+        final BlockingQueue<String> events = new LinkedBlockingQueue<>();
+        volatile boolean connected = true;
+        volatile boolean closed;
+
+        @Override
+        public boolean send(byte[] event) {
+            events.add(new String(event, StandardCharsets.UTF_8));
+            return connected;
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+        }
+
+        String next() throws InterruptedException {
+            String event = events.poll(5, TimeUnit.SECONDS);
+            assertNotNull(event);
+            return event;
+        }
+    }
+
+    // a client that never reads, nothing it was sent gets written
+    private static class StalledSubscriber extends GameEventHub.QueuedSubscriber {
+        volatile boolean disconnected;
+
+        @Override
+        protected void write() {
+        }
+
+        @Override
+        protected void disconnect() {
+            disconnected = true;
+        }
+    }
+
+    @BeforeEach
+    public void setUp() {
+        hub = new GameEventHub(2, 1, TimeUnit.HOURS);
+        id = UUID.randomUUID();
+        game = new GameImpl(3, 3, 2048, new SplitMixTileRandom(5));
+        game.initialize();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        hub.close();
+    }
+
+    private static String board(Game game) {
+        StringBuilder board = new StringBuilder();
+        for (int x = 0; x < game.getRows(); x++) {
+            for (int y = 0; y < game.getColumns(); y++) {
+                board.append(board.length() == 0 ? "" : ",").append(Bitboard.exponentOf(game.getValueAt(x, y)));
+            }
+        }
+        return board.toString();
+    }
+
+    @Test
+    public void testSubscribeYieldsWholeState() throws InterruptedException {
+        RecordingSubscriber subscriber = new RecordingSubscriber();
+
+        hub.subscribe(id, game, subscriber);
+
+        assertEquals("event: state\ndata: {\"moves\":0,\"score\":0,\"over\":false,\"won\":false,"
+                + "\"rows\":3,\"columns\":3,\"board\":[" + board(game) + "]}\n\n", subscriber.next());
+    }
+
+    @Test
+    public void testPublishYieldsOnlyChangedCellsToAllSubscribers() throws InterruptedException {
+        RecordingSubscriber player = new RecordingSubscriber();
+        RecordingSubscriber spectator = new RecordingSubscriber();
+        hub.subscribe(id, game, player);
+        hub.subscribe(id, game, spectator);
+        player.next();
+        spectator.next();
+        String before = board(game);
+
+        game.move(Direction.left);
+        hub.publish(id, game);
+
+        String[] previous = before.split(",");
+        String[] current = board(game).split(",");
+        StringBuilder changed = new StringBuilder();
+        for (int i = 0; i < current.length; i++) {
+            if (!current[i].equals(previous[i]))
+                changed.append(changed.length() == 0 ? "" : ",").append(i).append(',').append(current[i]);
+        }
+        String expected = "event: delta\ndata: {\"moves\":1,\"score\":" + game.getScore()
+                + ",\"over\":false,\"won\":false,\"changed\":[" + changed + "]}\n\n";
+        assertEquals(expected, player.next());
+        assertEquals(expected, spectator.next());
+    }
+
+    @Test
+    public void testFailedSubscriberIsDropped() throws InterruptedException {
+        RecordingSubscriber subscriber = new RecordingSubscriber();
+        hub.subscribe(id, game, subscriber);
+        subscriber.next();
+        subscriber.connected = false;
+
+        game.move(Direction.up);
+        hub.publish(id, game);
+        subscriber.next();
+
+        for (int i = 0; i < 100 && hub.getSubscriberCount(id) > 0; i++) {
+            Thread.sleep(10);
+        }
+        assertEquals(0, hub.getSubscriberCount(id));
+        assertTrue(subscriber.closed);
+    }
+
+    @Test
+    public void testPublishWithoutSubscribersSendsNothing() {
+        game.move(Direction.up);
+
+        hub.publish(id, game);
+
+        assertEquals(0, hub.getSubscriberCount(id));
+    }
+
+    @Test
+    public void testQueuedSubscriberBeyondBacklogYieldsFalse() {
+        StalledSubscriber subscriber = new StalledSubscriber();
+        for (int i = 0; i < GameEventHub.QueuedSubscriber.MAX_BACKLOG; i++) {
+            assertTrue(subscriber.send(new byte[1]));
+        }
+
+        assertFalse(subscriber.send(new byte[1]));
+        assertNotNull(subscriber.poll());
+        assertTrue(subscriber.send(new byte[1]));
+    }
+
+    @Test
+    public void testClosedQueuedSubscriberYieldsFalse() {
+        StalledSubscriber subscriber = new StalledSubscriber();
+        subscriber.send(new byte[1]);
+
+        subscriber.close();
+
+        assertTrue(subscriber.disconnected);
+        assertNull(subscriber.poll());
+        assertFalse(subscriber.send(new byte[1]));
+    }
+
+    @Test
+    public void testStalledSubscriberIsDroppedWithoutHoldingUpOthers() throws InterruptedException {
+        StalledSubscriber stalled = new StalledSubscriber();
+        RecordingSubscriber watcher = new RecordingSubscriber();
+        hub.subscribe(id, game, stalled);
+        hub.subscribe(id, game, watcher);
+        watcher.next();
+
+        for (int i = 0; i <= GameEventHub.QueuedSubscriber.MAX_BACKLOG; i++) {
+            hub.publish(id, game);
+            watcher.next();
+        }
+
+        for (int i = 0; i < 100 && hub.getSubscriberCount(id) > 1; i++) {
+            Thread.sleep(10);
+        }
+        assertEquals(1, hub.getSubscriberCount(id));
+        assertTrue(stalled.disconnected);
+    }
+}
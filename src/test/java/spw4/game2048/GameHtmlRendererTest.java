@@ -0,0 +1,102 @@
+package spw4.game2048;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class GameHtmlRendererTest {
+
+    private final GameHtmlRenderer renderer = new GameHtmlRenderer();
+
+    @Test
+    public void testRenderWritesMovesScoreAndTiles() {
+        Game game = mock(Game.class);
+        when(game.getMoves()).thenReturn(17);
+        when(game.getScore()).thenReturn(1234567);
+        when(game.getRows()).thenReturn(4);
+        when(game.getColumns()).thenReturn(4);
+        when(game.getValueAt(anyInt(), anyInt())).thenReturn(0);
+        when(game.getValueAt(0, 3)).thenReturn(2048);
+        when(game.getValueAt(3, 3)).thenReturn(4);
+
+        renderer.render(UUID.randomUUID(), game, null);
+        String html = renderer.toString();
+
+        assertTrue(html.contains("<h5>Moves: <span id=\"moves\">17</span></h5>"));
+        assertTrue(html.contains("<h5>Score: <span id=\"score\">1234567</span></h5>"));
+        assertTrue(html.contains("<div class=\"col mt-1 ml-1 mr-1 bg-light\">2048</div>"));
+        assertTrue(html.contains("<div class=\"col mt-1 ml-1 mb-1 mr-1 bg-light\">4</div>"));
+        assertTrue(html.contains("<div class=\"col mt-1 ml-1 bg-light\">0</div>"));
+        assertFalse(html.contains("YOU"));
+        assertFalse(html.contains("Hint:"));
+    }
+
+    @Test
+    public void testRenderWritesIdLikeUuidToString() {
+        UUID id = new UUID(0x0123456789abcdefL, 0xfedcba9876543210L);
+
+        renderer.render(id, new GameImpl(), null);
+
+        assertTrue(renderer.toString().contains("href=\"Game?id=" + id + "&action=up\""));
+    }
+
+    @Test
+    public void testRenderOfWonGameShowsWin() {
+        Game game = mock(Game.class);
+        when(game.isOver()).thenReturn(true);
+        when(game.isWon()).thenReturn(true);
+
+        renderer.render(UUID.randomUUID(), game, null);
+
+        assertTrue(renderer.toString().contains("YOU WIN"));
+    }
+
+    @Test
+    public void testRenderOfLostGameShowsLose() {
+        Game game = mock(Game.class);
+        when(game.isOver()).thenReturn(true);
+
+        renderer.render(UUID.randomUUID(), game, null);
+
+        assertTrue(renderer.toString().contains("YOU LOSE"));
+    }
+
+    @Test
+    public void testRenderWithAssetsLinksFingerprintedNames() {
+        GameHtmlRenderer fingerprinted = new GameHtmlRenderer(Map.of("js/game.js", "js/game.0123456789.js"));
+
+        fingerprinted.render(UUID.randomUUID(), new GameImpl(), null);
+
+        assertTrue(fingerprinted.toString().contains("<script src=\"js/game.0123456789.js\"></script>"));
+        assertTrue(fingerprinted.toString().contains("href=\"css/bootstrap.min.css\""));
+    }
+
+    @Test
+    public void testRenderWithHintShowsHint() {
+        renderer.render(UUID.randomUUID(), new GameImpl(), Direction.left);
+
+        assertTrue(renderer.toString().contains("<h5>Hint: left</h5>"));
+    }
+
+    @Test
+    public void testWriteToWritesRenderedPage() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        renderer.render(UUID.randomUUID(), new GameImpl(), null);
+
+        renderer.writeTo(out);
+
+        String html = out.toString(StandardCharsets.UTF_8);
+        assertTrue(html.startsWith("<!DOCTYPE html>\n"));
+        assertTrue(html.endsWith("</html>\n"));
+        assertEquals(renderer.toString(), html);
+    }
+}
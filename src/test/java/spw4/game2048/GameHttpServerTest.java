@@ -0,0 +1,225 @@
+package spw4.game2048;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.UUID;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class GameHttpServerTest {
+
+    private static final Pattern ID = Pattern.compile("\"id\":\"([^\"]+)\"");
+
+    @TempDir
+    Path webRoot;
+
+    private GameHttpServer server;
+    private HttpClient client;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        Files.writeString(webRoot.resolve("index.jsp"), "<h1>2048</h1>");
+        Files.createDirectories(webRoot.resolve("css"));
+        Files.writeString(webRoot.resolve("css/game.css"), "body {}");
+        Files.createDirectories(webRoot.resolve("WEB-INF"));
+        Files.writeString(webRoot.resolve("WEB-INF/web.xml"), "<web-app/>");
+        server = new GameHttpServer(new InetSocketAddress("localhost", 0), webRoot, Map.of("hintMillis", "1")::get);
+        server.start();
+        client = HttpClient.newHttpClient();
+    }
+
+    @AfterEach
+    public void tearDown() throws IOException {
+        server.close();
+    }
+
+    private HttpResponse<String> get(String path) throws IOException, InterruptedException {
+        return client.send(HttpRequest.newBuilder(URI.create("http://localhost:" + server.getPort() + path)).build(),
+                HttpResponse.BodyHandlers.ofString());
+    }
+
+    private HttpResponse<String> post(String path, String form) throws IOException, InterruptedException {
+        return client.send(HttpRequest.newBuilder(URI.create("http://localhost:" + server.getPort() + path))
+                        .header("Content-Type", "application/x-www-form-urlencoded")
+                        .POST(HttpRequest.BodyPublishers.ofString(form)).build(),
+                HttpResponse.BodyHandlers.ofString());
+    }
+
+    private String newGame() throws IOException, InterruptedException {
+        Matcher matcher = ID.matcher(get("/Game?action=new&format=json").body());
+        assertTrue(matcher.find());
+        return matcher.group(1);
+    }
+
+    @Test
+    public void testNewGameYieldsJsonState() throws IOException, InterruptedException {
+        HttpResponse<String> response = get("/Game?action=new&format=json&rows=5&columns=5");
+
+        assertEquals(200, response.statusCode());
+        assertEquals("application/json;charset=UTF-8", response.headers().firstValue("Content-Type").orElse(""));
+        assertTrue(response.body().contains("\"rows\":5"));
+    }
+
+    @Test
+    public void testNewGameYieldsHtmlPage() throws IOException, InterruptedException {
+        HttpResponse<String> response = get("/Game?action=new");
+
+        assertEquals(200, response.statusCode());
+        assertTrue(response.body().contains("id=\"board\""));
+    }
+
+    @Test
+    public void testPostedMovesAreApplied() throws IOException, InterruptedException {
+        String id = newGame();
+
+        HttpResponse<String> response = post("/Game", "id=" + id + "&format=json&moves=ULDR");
+
+        assertEquals(200, response.statusCode());
+        assertTrue(response.body().contains("\"moves\":4"));
+    }
+
+    @Test
+    public void testHintOnOtherSizeYieldsMoveOnlyWithMonteCarloSolver() throws IOException, InterruptedException {
+        Matcher matcher = ID.matcher(get("/Game?action=new&format=json&rows=5&columns=5").body());
+        assertTrue(matcher.find());
+        assertTrue(get("/Game?id=" + matcher.group(1) + "&action=hint&format=json").body().contains("\"hint\":null"));
+
+        try (GameHttpServer mcts = new GameHttpServer(new InetSocketAddress("localhost", 0), webRoot,
+                Map.of("hintMillis", "1", "hintSolver", "mcts")::get)) {
+            mcts.start();
+            String base = "http://localhost:" + mcts.getPort() + "/Game?format=json&";
+            matcher = ID.matcher(client.send(HttpRequest.newBuilder(URI.create(base + "action=new&rows=5&columns=5"))
+                    .build(), HttpResponse.BodyHandlers.ofString()).body());
+            assertTrue(matcher.find());
+            String hint = client.send(HttpRequest.newBuilder(URI.create(base + "action=hint&id=" + matcher.group(1)))
+                    .build(), HttpResponse.BodyHandlers.ofString()).body();
+
+            assertTrue(hint.matches(".*\"hint\":\"(up|down|left|right)\".*"), hint);
+        }
+    }
+
+    @Test
+    public void testUnknownGameYieldsNotFound() throws IOException, InterruptedException {
+        HttpResponse<String> response = get("/Game?id=00000000-0000-0000-0000-000000000000");
+
+        assertEquals(404, response.statusCode());
+        assertEquals("unknown game\n", response.body());
+    }
+
+    @Test
+    public void testInvalidMovesYieldBadRequest() throws IOException, InterruptedException {
+        String id = newGame();
+
+        assertEquals(400, get("/Game?id=" + id + "&moves=UX").statusCode());
+    }
+
+    @Test
+    public void testWatchStreamsStateAndDeltas() throws IOException, InterruptedException {
+        String id = newGame();
+        HttpResponse<Stream<String>> response = client.send(
+                HttpRequest.newBuilder(URI.create("http://localhost:" + server.getPort() + "/Game?action=watch&id=" + id)).build(),
+                HttpResponse.BodyHandlers.ofLines());
+        Iterator<String> lines = response.body().iterator();
+
+        assertEquals("text/event-stream;charset=UTF-8", response.headers().firstValue("Content-Type").orElse(""));
+        assertEquals("event: state", lines.next());
+        assertTrue(lines.next().startsWith("data: {\"moves\":0,"));
+        assertEquals("", lines.next());
+
+        get("/Game?id=" + id + "&moves=U");
+
+        assertEquals("event: delta", lines.next());
+        assertTrue(lines.next().startsWith("data: {\"moves\":1,"));
+        response.body().close();
+    }
+
+    @Test
+    public void testFinishedGameIsRankedOnce() throws IOException, InterruptedException {
+        String id = newGame();
+        String moves = "ULDR".repeat(2000);
+
+        post("/Game", "id=" + id + "&format=json&moves=" + moves);
+        post("/Game", "id=" + id + "&format=json&moves=" + moves);
+        HttpResponse<String> response = get("/Game?action=leaderboard&score=0");
+
+        assertEquals(200, response.statusCode());
+        assertTrue(response.body().startsWith("{\"games\":1,\"top\":[{\"score\":"));
+        assertTrue(response.body().endsWith(",\"percentile\":0.0}"));
+    }
+
+    @Test
+    public void testRootYieldsWelcomePage() throws IOException, InterruptedException {
+        HttpResponse<String> response = get("/");
+
+        assertEquals(200, response.statusCode());
+        assertEquals("text/html;charset=UTF-8", response.headers().firstValue("Content-Type").orElse(""));
+        assertEquals("<h1>2048</h1>", response.body());
+    }
+
+    @Test
+    public void testStaticFileYieldsContent() throws IOException, InterruptedException {
+        HttpResponse<String> response = get("/css/game.css");
+
+        assertEquals(200, response.statusCode());
+        assertEquals("text/css;charset=UTF-8", response.headers().firstValue("Content-Type").orElse(""));
+        assertEquals(AssetPipeline.REVALIDATE, response.headers().firstValue("Cache-Control").orElse(""));
+        assertEquals("body {}", response.body());
+    }
+
+    @Test
+    public void testFingerprintedFileIsImmutableAndCompressed() throws IOException, InterruptedException {
+        Files.writeString(webRoot.resolve("css/game.0123456789.css"), "body {}");
+        Files.write(webRoot.resolve("css/game.0123456789.css.gz"), new byte[]{31, -117});
+
+        HttpResponse<byte[]> response = client.send(
+                HttpRequest.newBuilder(URI.create("http://localhost:" + server.getPort() + "/css/game.0123456789.css"))
+                        .header("Accept-Encoding", "gzip").build(),
+                HttpResponse.BodyHandlers.ofByteArray());
+
+        assertEquals(AssetPipeline.IMMUTABLE, response.headers().firstValue("Cache-Control").orElse(""));
+        assertEquals("gzip", response.headers().firstValue("Content-Encoding").orElse(""));
+        assertEquals("text/css;charset=UTF-8", response.headers().firstValue("Content-Type").orElse(""));
+        assertArrayEquals(new byte[]{31, -117}, response.body());
+        assertEquals("body {}", get("/css/game.0123456789.css").body());
+    }
+
+    @Test
+    public void testWebInfAndMissingFilesYieldNotFound() throws IOException, InterruptedException {
+        assertEquals(404, get("/WEB-INF/web.xml").statusCode());
+        assertEquals(404, get("/css/missing.css").statusCode());
+    }
+
+    @Test
+    public void testMetricsYieldCountsByAction() throws IOException, InterruptedException {
+        String id = newGame();
+        get("/Game?id=" + id + "&action=left&format=json");
+        get("/Game?id=" + id + "&moves=UDL&format=json");
+        get("/Game?id=" + UUID.randomUUID());
+
+        HttpResponse<String> response = get("/metrics");
+
+        assertEquals(200, response.statusCode());
+        assertEquals(GameMetrics.CONTENT_TYPE, response.headers().firstValue("Content-Type").orElse(""));
+        assertTrue(response.body().contains("game2048_request_seconds_count{action=\"new\"} 1\n"));
+        assertTrue(response.body().contains("game2048_request_seconds_count{action=\"left\"} 1\n"));
+        assertTrue(response.body().contains("game2048_request_seconds_count{action=\"moves\"} 1\n"));
+        assertTrue(response.body().contains("game2048_errors_total{kind=\"client\"} 1\n"));
+        assertTrue(response.body().contains("game2048_active_games 1\n"));
+    }
+}
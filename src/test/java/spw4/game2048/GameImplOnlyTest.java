@@ -0,0 +1,192 @@
+package spw4.game2048;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+// what only GameImpl has, unlike GameImplTest not run again for BitboardGame
+public class GameImplOnlyTest {
+
+    private static int[] rowOf(Game game, int x) {
+        int[] row = new int[game.getColumns()];
+        for (int y = 0; y < row.length; y++) {
+            row[y] = game.getValueAt(x, y);
+        }
+        return row;
+    }
+
+    @Test
+    public void testMoveLeftOnWideBoardMergesWholeRow() {
+        GameImpl game = new GameImpl(3, 5, 2048, mock(TileRandom.class));
+        game.restore(new int[][] {
+                {2, 2, 0, 4, 4},
+                {0, 8, 8, 8, 0},
+                {2, 4, 2, 4, 2}}, 0, 0);
+
+        game.move(Direction.left);
+
+        assertArrayEquals(new int[] {4, 8, 0, 0, 0}, rowOf(game, 0));
+        assertArrayEquals(new int[] {16, 8, 0, 0, 0}, rowOf(game, 1));
+        assertArrayEquals(new int[] {2, 4, 2, 4, 2}, rowOf(game, 2));
+        assertEquals(28, game.getScore());
+    }
+
+    @Test
+    public void testMoveDownOnTallBoardMergesWholeColumn() {
+        GameImpl game = new GameImpl(5, 3, 2048, mock(TileRandom.class));
+        game.restore(new int[][] {
+                {2, 0, 0},
+                {2, 0, 0},
+                {4, 0, 0},
+                {0, 0, 0},
+                {4, 0, 0}}, 0, 0);
+
+        game.move(Direction.down);
+
+        for (int x = 0; x < 3; x++) {
+            assertEquals(0, game.getValueAt(x, 0));
+        }
+        assertEquals(4, game.getValueAt(3, 0));
+        assertEquals(8, game.getValueAt(4, 0));
+        assertEquals(12, game.getScore());
+    }
+
+    @Test
+    public void testIsWonWithConfiguredWinningTileYieldsTrue() {
+        GameImpl game = new GameImpl(3, 3, 128, mock(TileRandom.class));
+        game.restore(new int[][] {{64, 64, 0}, {0, 0, 0}, {0, 0, 0}}, 0, 0);
+
+        game.move(Direction.left);
+
+        assertTrue(game.isWon());
+        assertTrue(game.isOver());
+    }
+
+    @Test
+    public void testIsOverOnFullBoardWithoutMergesYieldsTrue() {
+        GameImpl game = new GameImpl(3, 4, 2048, mock(TileRandom.class));
+        game.restore(new int[][] {{2, 4, 2, 4}, {4, 2, 4, 2}, {2, 4, 2, 4}}, 0, 0);
+
+        assertTrue(game.isOver());
+        assertFalse(game.isWon());
+    }
+
+    @Test
+    public void testSpawnOnLargestBoardFillsLastCell() {
+        TileRandom tileRandom = mock(TileRandom.class);
+        when(tileRandom.getRandomPosition(anyInt())).thenReturn(63, 62);
+        when(tileRandom.getRandomValue()).thenReturn(2);
+        GameImpl game = new GameImpl(8, 8, 2048, tileRandom);
+
+        game.initialize();
+
+        assertEquals(2, game.getValueAt(7, 7));
+        assertEquals(2, game.getValueAt(7, 6));
+        assertEquals(8, game.getRows());
+        assertEquals(8, game.getColumns());
+    }
+
+    @Test
+    public void testUnsupportedSizeOrWinningTileThrows() {
+        TileRandom tileRandom = mock(TileRandom.class);
+
+        assertThrows(IllegalArgumentException.class, () -> new GameImpl(2, 4, 2048, tileRandom));
+        assertThrows(IllegalArgumentException.class, () -> new GameImpl(4, 9, 2048, tileRandom));
+        assertThrows(IllegalArgumentException.class, () -> new GameImpl(4, 4, 1000, tileRandom));
+    }
+
+    @Test
+    public void testTrackedStateMatchesBoardDuringRandomPlay() {
+        Random random = new Random(5);
+        GameImpl game = new GameImpl(5, 6, 256, new RealTileRandom(5));
+        game.initialize();
+
+        while (!game.isOver()) {
+            game.move(Direction.values()[random.nextInt(4)]);
+
+            int maxTile = 0;
+            boolean movable = false;
+            for (int x = 0; x < 5; x++) {
+                for (int y = 0; y < 6; y++) {
+                    int value = game.getValueAt(x, y);
+                    maxTile = Math.max(maxTile, value);
+                    movable |= value == 0
+                            || y + 1 < 6 && game.getValueAt(x, y + 1) == value
+                            || x + 1 < 5 && game.getValueAt(x + 1, y) == value;
+                }
+            }
+            assertEquals(maxTile, game.getMaxTile());
+            assertEquals(maxTile == 256, game.isWon());
+            assertEquals(maxTile == 256 || !movable, game.isOver());
+        }
+    }
+
+    @Test
+    public void testRestoreRecomputesTrackedState() {
+        GameImpl game = new GameImpl(mock(TileRandom.class));
+        game.restore(new int[][] {{2, 4, 2, 4}, {4, 2, 4, 2}, {2, 4, 2, 4}, {4, 2, 4, 2048}}, 0, 0);
+
+        assertEquals(2048, game.getMaxTile());
+        assertTrue(game.isWon());
+
+        game.restore(new int[][] {{2, 4, 2, 4}, {4, 2, 4, 2}, {2, 4, 2, 4}, {4, 2, 4, 8}}, 0, 0);
+
+        assertEquals(8, game.getMaxTile());
+        assertFalse(game.isWon());
+        assertTrue(game.isOver());
+    }
+
+    @Test
+    public void testCopyYieldsIndependentGameWithSameState() {
+        GameImpl game = new GameImpl(5, 5, 64, new RealTileRandom(3));
+        game.initialize();
+        game.move(Direction.left);
+
+        GameImpl copy = new GameImpl(game, new SplitMixTileRandom(3));
+        for (int x = 0; x < 5; x++) {
+            assertArrayEquals(rowOf(game, x), rowOf(copy, x));
+        }
+        assertEquals(game.getMoves(), copy.getMoves());
+        assertEquals(game.getScore(), copy.getScore());
+        assertEquals(game.getLegalMoves(), copy.getLegalMoves());
+
+        while (!copy.isOver()) {
+            copy.move(Direction.values()[copy.getMoves() % 4]);
+        }
+        assertEquals(1, game.getMoves());
+        assertFalse(game.isOver());
+    }
+
+    @Test
+    public void testCopyFromYieldsStateOfOtherGame() {
+        GameImpl game = new GameImpl(mock(TileRandom.class));
+        game.restore(new int[][] {
+                {2, 4, 2, 4},
+                {4, 2, 4, 2},
+                {2, 4, 2, 4},
+                {4, 2, 4, 2048}}, 100, 3000);
+        GameImpl other = new GameImpl(new SplitMixTileRandom(1));
+        other.initialize();
+
+        other.copyFrom(game);
+
+        assertTrue(other.isOver());
+        assertTrue(other.isWon());
+        assertEquals(2048, other.getMaxTile());
+        assertEquals(3000, other.getScore());
+        assertEquals(100, other.getMoves());
+    }
+
+    @Test
+    public void testCopyFromGameOfOtherSizeThrows() {
+        GameImpl game = new GameImpl(new SplitMixTileRandom(1));
+
+        assertThrows(IllegalArgumentException.class,
+                () -> game.copyFrom(new GameImpl(5, 4, 2048, new SplitMixTileRandom(1))));
+    }
+}
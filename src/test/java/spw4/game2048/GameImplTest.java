@@ -3,6 +3,8 @@ package spw4.game2048;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.util.Random;
+
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.Mockito.mock;
@@ -10,16 +12,20 @@ import static org.mockito.Mockito.when;
 
 public class GameImplTest {
 
-    private GameImpl game;
+    private Game game;
+
+    protected Game createGame(TileRandom tileRandom) {
+        return new GameImpl(tileRandom);
+    }
 
     @BeforeEach
     public void createGame() {
-        game = new GameImpl();
+        game = createGame(new RealTileRandom());
     }
 
     @Test
     public void testNewGameImplYieldsEmptyGame() {
-        GameImpl game = new GameImpl();
+        Game game = createGame(new RealTileRandom());
 
         for (int x = 0; x < 4; x++) {
             for (int y = 0; y < 4; y++) {
@@ -52,7 +58,7 @@ public class GameImplTest {
 
         when(tileRandom.getRandomValue()).thenReturn(2);
 
-        GameImpl game = new GameImpl(tileRandom);
+        Game game = createGame(tileRandom);
         game.initialize();
 
         for (int x = 0; x < 4; x++) {
@@ -76,7 +82,7 @@ public class GameImplTest {
                 .thenReturn(4)
                 .thenReturn(2);
 
-        GameImpl game = new GameImpl(tileRandom);
+        Game game = createGame(tileRandom);
         game.initialize();
 
         for (int x = 0; x < 4; x++) {
@@ -104,7 +110,7 @@ public class GameImplTest {
                 .thenReturn(4)
                 .thenReturn(2);
 
-        GameImpl game = new GameImpl(tileRandom);
+        Game game = createGame(tileRandom);
         game.initialize();
 
         game.move(Direction.down);
@@ -127,7 +133,7 @@ public class GameImplTest {
                 .thenReturn(4)
                 .thenReturn(2);
 
-        GameImpl game = new GameImpl(tileRandom);
+        Game game = createGame(tileRandom);
         game.initialize();
 
         game.move(Direction.up);
@@ -150,7 +156,7 @@ public class GameImplTest {
                 .thenReturn(4)
                 .thenReturn(2);
 
-        GameImpl game = new GameImpl(tileRandom);
+        Game game = createGame(tileRandom);
         game.initialize();
 
         game.move(Direction.right);
@@ -173,7 +179,7 @@ public class GameImplTest {
                 .thenReturn(4)
                 .thenReturn(2);
 
-        GameImpl game = new GameImpl(tileRandom);
+        Game game = createGame(tileRandom);
         game.initialize();
 
         game.move(Direction.left);
@@ -196,7 +202,7 @@ public class GameImplTest {
                 .thenReturn(2)
                 .thenReturn(2);
 
-        GameImpl game = new GameImpl(tileRandom);
+        Game game = createGame(tileRandom);
         game.initialize();
 
         game.move(Direction.right);
@@ -216,7 +222,7 @@ public class GameImplTest {
                 .thenReturn(2)
                 .thenReturn(2);
 
-        GameImpl game = new GameImpl(tileRandom);
+        Game game = createGame(tileRandom);
         game.initialize();
 
         game.move(Direction.left);
@@ -235,7 +241,7 @@ public class GameImplTest {
                 .thenReturn(2)
                 .thenReturn(2);
 
-        GameImpl game = new GameImpl(tileRandom);
+        Game game = createGame(tileRandom);
         game.initialize();
 
         game.move(Direction.down);
@@ -254,7 +260,7 @@ public class GameImplTest {
                 .thenReturn(2)
                 .thenReturn(2);
 
-        GameImpl game = new GameImpl(tileRandom);
+        Game game = createGame(tileRandom);
         game.initialize();
 
         game.move(Direction.up);
@@ -296,7 +302,7 @@ public class GameImplTest {
                 .thenReturn(2)
                 .thenReturn(2);
 
-        GameImpl game = new GameImpl(tileRandom);
+        Game game = createGame(tileRandom);
         game.initialize();
 
         game.move(Direction.up);
@@ -314,7 +320,7 @@ public class GameImplTest {
                 .thenReturn(2)
                 .thenReturn(4);
 
-        GameImpl game = new GameImpl(tileRandom);
+        Game game = createGame(tileRandom);
         game.initialize();
 
         String gameboard =
@@ -336,7 +342,7 @@ public class GameImplTest {
                 .thenReturn(2048)
                 .thenReturn(2);
 
-        GameImpl game = new GameImpl(tileRandom);
+        Game game = createGame(tileRandom);
         game.initialize();
 
         assertTrue(game.isOver());
@@ -365,7 +371,7 @@ public class GameImplTest {
                 .thenReturn(8)
                 .thenReturn(4)
                 .thenReturn(2);
-        GameImpl game = new GameImpl(tileRandom);
+        Game game = createGame(tileRandom);
         game.initialize();
 
         for (int i = 0; i < 14; i++) {
@@ -404,7 +410,7 @@ public class GameImplTest {
                 .thenReturn(4)
                 .thenReturn(8)
                 .thenReturn(16);
-        GameImpl game = new GameImpl(tileRandom);
+        Game game = createGame(tileRandom);
         game.initialize();
 
         for (int i = 0; i < 14; i++) {
@@ -436,7 +442,7 @@ public class GameImplTest {
                 .thenReturn(4)
                 .thenReturn(8)
                 .thenReturn(16);
-        GameImpl game = new GameImpl(tileRandom);
+        Game game = createGame(tileRandom);
         game.initialize();
 
         for (int i = 0; i < 14; i++) {
@@ -456,7 +462,7 @@ public class GameImplTest {
         when(tileRandom.getRandomValue())
                 .thenReturn(2);
 
-        GameImpl game = new GameImpl(tileRandom);
+        Game game = createGame(tileRandom);
         game.initialize();
 
         game.move(Direction.right);
@@ -477,7 +483,7 @@ public class GameImplTest {
         when(tileRandom.getRandomValue())
                 .thenReturn(2);
 
-        GameImpl game = new GameImpl(tileRandom);
+        Game game = createGame(tileRandom);
         game.initialize();
 
         game.move(Direction.left);
@@ -498,7 +504,7 @@ public class GameImplTest {
         when(tileRandom.getRandomValue())
                 .thenReturn(2);
 
-        GameImpl game = new GameImpl(tileRandom);
+        Game game = createGame(tileRandom);
         game.initialize();
 
         game.move(Direction.up);
@@ -519,7 +525,7 @@ public class GameImplTest {
         when(tileRandom.getRandomValue())
                 .thenReturn(2);
 
-        GameImpl game = new GameImpl(tileRandom);
+        Game game = createGame(tileRandom);
         game.initialize();
 
         game.move(Direction.down);
@@ -529,4 +535,53 @@ public class GameImplTest {
         assertEquals(0, game.getValueAt(2, 0));
         assertEquals(4, game.getValueAt(3, 0));
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testMoveThatChangesBoardYieldsTrue() {
+        TileRandom tileRandom = mock(TileRandom.class);
+        when(tileRandom.getRandomPosition(anyInt())).thenReturn(0);
+        when(tileRandom.getRandomValue()).thenReturn(2);
+        Game game = createGame(tileRandom);
+        game.initialize();
+
+        assertTrue(game.move(Direction.right));
+    }
+
+    @Test
+    public void testMoveThatChangesNothingYieldsFalse() {
+        TileRandom tileRandom = mock(TileRandom.class);
+        when(tileRandom.getRandomPosition(anyInt())).thenReturn(0);
+        when(tileRandom.getRandomValue()).thenReturn(2, 4);
+        Game game = createGame(tileRandom);
+        game.initialize();
+
+        assertFalse(game.move(Direction.left));
+        assertFalse(game.move(Direction.up));
+    }
+
+    @Test
+    public void testGetLegalMovesYieldsDirectionsThatChangeBoard() {
+        TileRandom tileRandom = mock(TileRandom.class);
+        when(tileRandom.getRandomPosition(anyInt())).thenReturn(0);
+        when(tileRandom.getRandomValue()).thenReturn(2, 4);
+        Game game = createGame(tileRandom);
+        game.initialize();
+
+        assertEquals(1 << Direction.down.ordinal() | 1 << Direction.right.ordinal(), game.getLegalMoves());
+    }
+
+    @Test
+    public void testGetLegalMovesMatchesMovesDuringRandomPlay() {
+        Random random = new Random(11);
+        Game game = createGame(new RealTileRandom(11));
+        game.initialize();
+
+        while (!game.isOver()) {
+            int legalMoves = game.getLegalMoves();
+            Direction direction = Direction.values()[random.nextInt(4)];
+            assertEquals((legalMoves & 1 << direction.ordinal()) != 0, game.move(direction));
+        }
+        if (!game.isWon())
+            assertEquals(0, game.getLegalMoves());
+    }
+}
@@ -0,0 +1,72 @@
+package spw4.game2048;
+
+import org.junit.jupiter.api.Test;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class GameMetricsTest {
+
+    @Test
+    public void testRecordedRequestsYieldPrometheusText() {
+        GameMetrics metrics = new GameMetrics();
+        metrics.recordRequest(GameMetrics.UP, 2000);
+        metrics.recordRequest(GameMetrics.UP, 4000);
+        metrics.recordMoves(2);
+        metrics.recordError(404);
+        metrics.recordError(500);
+
+        StringBuilder text = new StringBuilder();
+        metrics.writePrometheus(text);
+
+        assertTrue(text.indexOf("# TYPE game2048_request_seconds summary\n") >= 0);
+        assertTrue(text.indexOf("game2048_request_seconds_count{action=\"up\"} 2\n") >= 0);
+        assertTrue(text.indexOf("game2048_request_seconds_sum{action=\"up\"} 0.000006000\n") >= 0);
+        assertTrue(text.indexOf("game2048_request_seconds_count{action=\"down\"} 0\n") >= 0);
+        assertTrue(text.indexOf("game2048_moves_total 2\n") >= 0);
+        assertTrue(text.indexOf("game2048_errors_total{kind=\"client\"} 1\n") >= 0);
+        assertTrue(text.indexOf("game2048_errors_total{kind=\"server\"} 1\n") >= 0);
+    }
+
+    @Test
+    public void testGameStoreYieldsGauges() {
+        GameMetrics metrics = new GameMetrics();
+        BoundedGameStore games = new BoundedGameStore(1, 1, TimeUnit.MINUTES);
+        metrics.setGameStore(games);
+        games.put(new UUID(0, 1), new GameImpl());
+        games.put(new UUID(0, 2), new GameImpl());
+        games.get(new UUID(0, 1));
+        games.get(new UUID(0, 2));
+
+        assertEquals(1, metrics.getActiveGames());
+        assertEquals(1, metrics.getStoreHits());
+        assertEquals(1, metrics.getStoreMisses());
+        assertEquals(1, metrics.getEvictedGames());
+        StringBuilder text = new StringBuilder();
+        metrics.writePrometheus(text);
+        assertTrue(text.indexOf("game2048_store_lookups_total{result=\"miss\"} 1\n") >= 0);
+    }
+
+    @Test
+    public void testRegisterYieldsMXBean() throws JMException {
+        GameMetrics metrics = new GameMetrics();
+        metrics.recordRequest(GameMetrics.NEW, 1000);
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = new ObjectName("spw4.game2048:type=GameMetrics,name=\"test\"");
+
+        metrics.register("test");
+        try {
+            assertEquals(0L, server.getAttribute(name, "Moves"));
+            assertNotNull(server.getAttribute(name, "RequestsByAction"));
+        } finally {
+            metrics.unregister();
+        }
+        assertFalse(server.isRegistered(name));
+    }
+}
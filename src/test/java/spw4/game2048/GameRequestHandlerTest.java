@@ -0,0 +1,134 @@
+package spw4.game2048;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class GameRequestHandlerTest {
+
+    private static final Pattern ID = Pattern.compile("\"id\":\"([^\"]+)\"");
+    private static final Pattern MOVES = Pattern.compile("\"moves\":(\\d+)");
+    private static final Pattern SCORE = Pattern.compile("\"score\":(\\d+)");
+    private static final Pattern APPLIED = Pattern.compile("\"applied\":(\\d+)");
+    private static final Pattern DELTAS = Pattern.compile("\"deltas\":\\[([\\d,]*)]");
+
+    private GameRequestHandler handler;
+
+    // answers a request with the given parameters and keeps the body of the response
+    private static class TestExchange implements GameRequestHandler.Exchange {
+        private final Map<String, String> parameters = new HashMap<>();
+        private int status;
+        private String body;
+
+        TestExchange(String... parameters) {
+            for (int i = 0; i < parameters.length; i += 2)
+                this.parameters.put(parameters[i], parameters[i + 1]);
+        }
+
+        @Override
+        public String getParameter(String name) {
+            return parameters.get(name);
+        }
+
+        @Override
+        public void send(int status, String contentType, ResponseBuffer body) throws IOException {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            body.writeTo(out);
+            this.status = status;
+            this.body = out.toString(StandardCharsets.UTF_8);
+        }
+
+        @Override
+        public void sendError(int status, String message) {
+            this.status = status;
+            this.body = message;
+        }
+
+        @Override
+        public GameEventHub.Subscriber startEventStream() {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    private static int find(Pattern pattern, String body) {
+        Matcher matcher = pattern.matcher(body);
+        assertTrue(matcher.find(), body);
+        return Integer.parseInt(matcher.group(1));
+    }
+
+    private TestExchange handle(String... parameters) throws IOException {
+        TestExchange exchange = new TestExchange(parameters);
+        handler.handle(exchange);
+        assertEquals(200, exchange.status, exchange.body);
+        return exchange;
+    }
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        handler = new GameRequestHandler(GameRequestHandler.createGameStore(Map.<String, String>of()::get),
+                Map.of("hintMillis", "1")::get, Map.of());
+    }
+
+    @AfterEach
+    public void tearDown() throws IOException {
+        handler.close();
+    }
+
+    @Test
+    public void testConcurrentMovesOnOneGameYieldConsistentMovesAndScore() throws Exception {
+        Matcher matcher = ID.matcher(handle("action", "new", "format", "json", "rows", "8", "columns", "8").body);
+        assertTrue(matcher.find());
+        String id = matcher.group(1);
+        int threads = 8;
+        int requestsPerThread = 50;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            // every thread sums the moves and score gains its batches reported, a game whose moves
+            // were not serialized would lose some of them
+            List<Future<int[]>> results = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                results.add(executor.submit(() -> {
+                    int[] movesAndScore = new int[2];
+                    for (int i = 0; i < requestsPerThread; i++) {
+                        String body = handle("id", id, "format", "json", "moves", "ULDR", "deltas", "true").body;
+                        movesAndScore[0] += find(APPLIED, body);
+                        Matcher deltas = DELTAS.matcher(body);
+                        assertTrue(deltas.find(), body);
+                        for (String delta : deltas.group(1).split(","))
+                            if (!delta.isEmpty())
+                                movesAndScore[1] += Integer.parseInt(delta);
+                    }
+                    return movesAndScore;
+                }));
+            }
+            int moves = 0;
+            int score = 0;
+            for (Future<int[]> result : results) {
+                moves += result.get()[0];
+                score += result.get()[1];
+            }
+
+            String body = handle("id", id, "format", "json").body;
+            assertEquals(moves, find(MOVES, body));
+            assertEquals(score, find(SCORE, body));
+            assertEquals(moves, handler.getMetrics().getMoves());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,180 @@
+package spw4.game2048;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class GameSnapshotStoreTest {
+
+    @TempDir
+    Path directory;
+
+    private GameSnapshotStore createStore(int segmentRecords, long minCompactionRecords) throws IOException {
+        // a long commit interval leaves all writes to the explicit flushes
+        return new GameSnapshotStore(directory.resolve("games.snapshots"), 1, TimeUnit.DAYS,
+                segmentRecords, minCompactionRecords);
+    }
+
+    private Map<UUID, Game> recover() throws IOException {
+        Map<UUID, Game> games = new LinkedHashMap<>();
+        try (GameSnapshotStore store = createStore(4, 1000)) {
+            store.recover(games::put);
+        }
+        return games;
+    }
+
+    private static GameImpl playedGame(long seed, int moves) {
+        return playedGame(new RealTileRandom(seed), moves);
+    }
+
+    private static GameImpl playedGame(TileRandom tileRandom, int moves) {
+        GameImpl game = new GameImpl(tileRandom);
+        game.initialize();
+        for (int i = 0; i < moves && !game.isOver(); i++) {
+            game.move(Direction.values()[i % 4]);
+        }
+        return game;
+    }
+
+    private static void assertSameState(Game expected, Game actual) {
+        assertEquals(expected.toString(), actual.toString());
+        assertEquals(expected.getMoves(), actual.getMoves());
+        assertEquals(expected.getScore(), actual.getScore());
+    }
+
+    @Test
+    public void testRecoverAfterCloseYieldsSavedGames() throws IOException {
+        UUID first = UUID.randomUUID();
+        UUID second = UUID.randomUUID();
+        GameImpl firstGame = playedGame(1, 20);
+        GameImpl secondGame = playedGame(2, 30);
+        try (GameSnapshotStore store = createStore(4, 1000)) {
+            store.save(first, firstGame);
+            store.save(second, secondGame);
+        }
+
+        Map<UUID, Game> games = recover();
+
+        assertEquals(2, games.size());
+        assertSameState(firstGame, games.get(first));
+        assertSameState(secondGame, games.get(second));
+    }
+
+    @Test
+    public void testRecoveredGameContinuesWithSameTiles() throws IOException {
+        UUID id = UUID.randomUUID();
+        GameImpl game = playedGame(new SplitMixTileRandom(3), 10);
+        try (GameSnapshotStore store = createStore(4, 1000)) {
+            store.save(id, game);
+        }
+
+        Game recovered = recover().get(id);
+        for (int i = 0; i < 20 && !game.isOver(); i++) {
+            game.move(Direction.values()[(i * 3) % 4]);
+            recovered.move(Direction.values()[(i * 3) % 4]);
+        }
+
+        assertSameState(game, recovered);
+    }
+
+    @Test
+    public void testSaveDoesNotChangeTilesOfGame() throws IOException {
+        GameImpl saved = playedGame(5, 10);
+        GameImpl unsaved = playedGame(5, 10);
+        try (GameSnapshotStore store = createStore(4, 1000)) {
+            store.save(UUID.randomUUID(), saved);
+        }
+
+        for (int i = 0; i < 20 && !saved.isOver(); i++) {
+            saved.move(Direction.values()[(i * 3) % 4]);
+            unsaved.move(Direction.values()[(i * 3) % 4]);
+        }
+
+        assertSameState(unsaved, saved);
+    }
+
+    @Test
+    public void testRecoverYieldsLatestSnapshotAcrossSegments() throws IOException {
+        UUID id = UUID.randomUUID();
+        GameImpl game = playedGame(4, 0);
+        try (GameSnapshotStore store = createStore(4, 1000)) {
+            for (int i = 0; i < 10; i++) {
+                game.move(Direction.values()[i % 4]);
+                store.save(id, game);
+                store.flush();
+            }
+            assertEquals(10, store.getRecordCount());
+        }
+
+        assertSameState(game, recover().get(id));
+    }
+
+    @Test
+    public void testRecoverSkipsRemovedGames() throws IOException {
+        UUID kept = UUID.randomUUID();
+        UUID removed = UUID.randomUUID();
+        try (GameSnapshotStore store = createStore(4, 1000)) {
+            GameImpl removedGame = playedGame(6, 5);
+            store.save(kept, playedGame(5, 5));
+            store.save(removed, removedGame);
+            store.flush();
+            store.remove(removed, removedGame);
+        }
+
+        Map<UUID, Game> games = recover();
+
+        assertEquals(1, games.size());
+        assertTrue(games.containsKey(kept));
+    }
+
+    @Test
+    public void testSaveAfterRemoveIsIgnored() throws IOException {
+        UUID id = UUID.randomUUID();
+        GameImpl game = playedGame(7, 5);
+        try (GameSnapshotStore store = createStore(4, 1000)) {
+            store.save(id, game);
+            store.remove(id, game);
+            store.flush();
+            game.move(Direction.up);
+            store.save(id, game);
+        }
+
+        assertTrue(recover().isEmpty());
+    }
+
+    @Test
+    public void testFlushCompactsLogWithOutdatedRecords() throws IOException {
+        UUID id = UUID.randomUUID();
+        GameImpl game = playedGame(7, 0);
+        try (GameSnapshotStore store = createStore(4, 5)) {
+            for (int i = 0; i < 7; i++) {
+                game.move(Direction.values()[i % 4]);
+                store.save(id, game);
+                store.flush();
+            }
+            assertTrue(store.getRecordCount() < 7);
+        }
+
+        assertSameState(game, recover().get(id));
+    }
+
+    @Test
+    public void testSaveDoesNotWriteBeforeGroupCommit() throws IOException {
+        try (GameSnapshotStore store = createStore(4, 1000)) {
+            store.save(UUID.randomUUID(), playedGame(8, 5));
+            store.save(UUID.randomUUID(), playedGame(9, 5));
+
+            assertEquals(0, store.getRecordCount());
+            store.flush();
+            assertEquals(2, store.getRecordCount());
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package spw4.game2048;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class GameStateEncoderTest {
+
+    private final GameStateEncoder encoder = new GameStateEncoder();
+    private final UUID id = new UUID(0x0123456789abcdefL, 0xfedcba9876543210L);
+
+    private Game createGame() {
+        Game game = mock(Game.class);
+        when(game.getMoves()).thenReturn(3);
+        when(game.getScore()).thenReturn(8);
+        when(game.getRows()).thenReturn(4);
+        when(game.getColumns()).thenReturn(4);
+        when(game.getValueAt(anyInt(), anyInt())).thenReturn(0);
+        when(game.getValueAt(0, 0)).thenReturn(2);
+        when(game.getValueAt(3, 3)).thenReturn(2048);
+        return game;
+    }
+
+    @Test
+    public void testEncodeJsonYieldsCompactState() {
+        encoder.encodeJson(id, createGame(), null);
+
+        assertEquals("{\"id\":\"" + id + "\",\"moves\":3,\"score\":8,\"over\":false,\"won\":false,\"hint\":null,"
+                + "\"legal\":[],\"rows\":4,\"columns\":4,\"board\":[1,0,0,0,0,0,0,0,0,0,0,0,0,0,0,11]}", encoder.toString());
+    }
+
+    @Test
+    public void testEncodeWritesLegalMoves() throws IOException {
+        Game game = createGame();
+        when(game.getLegalMoves()).thenReturn(1 << Direction.down.ordinal() | 1 << Direction.right.ordinal());
+
+        encoder.encodeJson(id, game, null);
+        assertTrue(encoder.toString().contains("\"legal\":[\"down\",\"right\"],"));
+
+        encoder.encodeBinary(id, game, null);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        encoder.writeTo(out);
+        assertEquals(0b101000, out.toByteArray()[40]);
+    }
+
+    @Test
+    public void testEncodeJsonOfWonGameWithHint() {
+        Game game = createGame();
+        when(game.isOver()).thenReturn(true);
+        when(game.isWon()).thenReturn(true);
+
+        encoder.encodeJson(id, game, Direction.down);
+
+        assertTrue(encoder.toString().contains("\"over\":true,\"won\":true,\"hint\":\"down\""));
+    }
+
+    @Test
+    public void testEncodeBinaryYieldsFixedLayout() throws IOException {
+        Game game = createGame();
+        when(game.isOver()).thenReturn(true);
+
+        encoder.encodeBinary(id, game, Direction.left);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        encoder.writeTo(out);
+
+        ByteBuffer bytes = ByteBuffer.wrap(out.toByteArray());
+        assertEquals(GameStateEncoder.BINARY_LENGTH, bytes.remaining());
+        assertEquals(id, new UUID(bytes.getLong(), bytes.getLong()));
+        assertEquals(1, bytes.get());
+        bytes.position(bytes.position() + 14);
+        assertEquals(11, bytes.get());
+        assertEquals(3, bytes.getInt());
+        assertEquals(8, bytes.getInt());
+        assertEquals(1, bytes.get());
+        assertEquals(Direction.left.ordinal() + 1, bytes.get());
+    }
+
+    @Test
+    public void testEncodeJsonAfterBatchYieldsAppliedMovesAndDeltas() {
+        encoder.encodeJson(id, createGame(), null, 2, new int[]{0, 4, 99});
+
+        assertTrue(encoder.toString().endsWith("\"board\":[1,0,0,0,0,0,0,0,0,0,0,0,0,0,0,11],\"applied\":2,\"deltas\":[0,4]}"));
+    }
+
+    @Test
+    public void testEncodeJsonAfterBatchWithoutDeltasYieldsAppliedMoves() {
+        encoder.encodeJson(id, createGame(), null, 5, null);
+
+        assertTrue(encoder.toString().endsWith(",\"applied\":5}"));
+    }
+
+    @Test
+    public void testEncodeBinaryAfterBatchAppendsAppliedMovesAndDeltas() throws IOException {
+        encoder.encodeBinary(id, createGame(), null, 2, new int[]{8, 16});
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        encoder.writeTo(out);
+
+        ByteBuffer bytes = ByteBuffer.wrap(out.toByteArray());
+        assertEquals(GameStateEncoder.BINARY_LENGTH + 12, bytes.remaining());
+        bytes.position(GameStateEncoder.BINARY_LENGTH);
+        assertEquals(2, bytes.getInt());
+        assertEquals(8, bytes.getInt());
+        assertEquals(16, bytes.getInt());
+    }
+
+    @Test
+    public void testEncodeLeaderboardJsonYieldsTopAndPercentile() {
+        Leaderboard leaderboard = new Leaderboard(2);
+        leaderboard.submit(4, 3, false);
+        leaderboard.submit(12, 5, false);
+        leaderboard.submit(8, 4, true);
+
+        encoder.encodeLeaderboardJson(leaderboard, 8);
+
+        assertEquals("{\"games\":3,\"top\":[{\"score\":12,\"moves\":5,\"won\":false},"
+                + "{\"score\":8,\"moves\":4,\"won\":true}],\"percentile\":50.0}", encoder.toString());
+    }
+
+    @Test
+    public void testEncodeLeaderboardJsonWithoutScoreOmitsPercentile() {
+        encoder.encodeLeaderboardJson(new Leaderboard(), -1);
+
+        assertEquals("{\"games\":0,\"top\":[]}", encoder.toString());
+    }
+}
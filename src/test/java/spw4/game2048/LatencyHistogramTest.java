@@ -0,0 +1,65 @@
+package spw4.game2048;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LatencyHistogramTest {
+
+    @Test
+    public void testEmptyHistogramYieldsZero() {
+        LatencyHistogram histogram = new LatencyHistogram();
+
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getValueAtQuantile(0.99));
+    }
+
+    @Test
+    public void testSmallValuesYieldExactQuantiles() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 1; i <= 10; i++) {
+            histogram.record(i);
+        }
+
+        assertEquals(10, histogram.getCount());
+        assertEquals(55, histogram.getSum());
+        assertEquals(5, histogram.getValueAtQuantile(0.5));
+        assertEquals(10, histogram.getValueAtQuantile(1));
+    }
+
+    @Test
+    public void testLargeValuesYieldQuantilesWithinThreePercent() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long i = 1; i <= 100_000; i++) {
+            histogram.record(i * 1000);
+        }
+
+        long median = histogram.getValueAtQuantile(0.5);
+        long p99 = histogram.getValueAtQuantile(0.99);
+
+        assertTrue(Math.abs(median - 50_000_000) < 1_500_000, "median " + median);
+        assertTrue(Math.abs(p99 - 99_000_000) < 3_000_000, "p99 " + p99);
+        assertEquals(100_000_000, histogram.getValueAtQuantile(1));
+    }
+
+    @Test
+    public void testNegativeValuesAreRecordedAsZero() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(-5);
+
+        assertEquals(1, histogram.getCount());
+        assertEquals(0, histogram.getValueAtQuantile(0.5));
+    }
+
+    @Test
+    public void testBucketsCoverValuesInOrder() {
+        long previousBound = -1;
+        for (int bucket = 0; bucket < 400; bucket++) {
+            long bound = LatencyHistogram.upperBoundOf(bucket);
+            assertTrue(bound > previousBound);
+            assertEquals(bucket, LatencyHistogram.bucketOf(bound));
+            assertEquals(bucket, LatencyHistogram.bucketOf(previousBound + 1));
+            previousBound = bound;
+        }
+    }
+}
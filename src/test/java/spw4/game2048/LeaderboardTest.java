@@ -0,0 +1,97 @@
+package spw4.game2048;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LeaderboardTest {
+
+    private static List<Integer> scores(List<Leaderboard.Entry> entries) {
+        return entries.stream().map(Leaderboard.Entry::getScore).collect(Collectors.toList());
+    }
+
+    @Test
+    public void testGetTopYieldsBestScoresBestFirst() {
+        Leaderboard leaderboard = new Leaderboard(3);
+        for (int score : new int[]{40, 10, 90, 30, 70, 20}) {
+            leaderboard.submit(score, score / 10, false);
+        }
+
+        assertEquals(List.of(90, 70, 40), scores(leaderboard.getTop()));
+        assertEquals(9, leaderboard.getTop().get(0).getMoves());
+        assertEquals(6, leaderboard.getGames());
+    }
+
+    @Test
+    public void testEqualScoreKeepsEarlierGame() {
+        Leaderboard leaderboard = new Leaderboard(1);
+        leaderboard.submit(100, 1, false);
+        leaderboard.submit(100, 2, true);
+
+        assertEquals(1, leaderboard.getTop().get(0).getMoves());
+    }
+
+    @Test
+    public void testPercentileOfExactScores() {
+        Leaderboard leaderboard = new Leaderboard();
+        for (int score = 0; score < 10; score++) {
+            leaderboard.submit(score, 0, false);
+        }
+
+        assertEquals(0, new Leaderboard().getPercentile(5));
+        assertEquals(55.0, leaderboard.getPercentile(5), 1e-9);
+        assertEquals(100.0, leaderboard.getPercentile(1000), 1e-9);
+    }
+
+    @Test
+    public void testPercentileIsWithinBucketOfLargeScores() {
+        Leaderboard leaderboard = new Leaderboard();
+        for (int score = 1; score <= 100_000; score++) {
+            leaderboard.submit(score * 4, 0, false);
+        }
+
+        assertEquals(25.0, leaderboard.getPercentile(100_000), 25.0 / 8);
+        assertEquals(90.0, leaderboard.getPercentile(360_000), 90.0 / 8);
+    }
+
+    @Test
+    public void testBucketsGrowWithScore() {
+        int previous = -1;
+        for (int score = 0; score < 1 << 20; score += 7) {
+            int bucket = Leaderboard.bucketOf(score);
+            assertTrue(bucket >= previous);
+            previous = bucket;
+        }
+        assertTrue(Leaderboard.bucketOf(Integer.MAX_VALUE) < 16 + 27 * 8);
+    }
+
+    @Test
+    public void testConcurrentSubmissionsKeepTopAndCount() throws InterruptedException {
+        Leaderboard leaderboard = new Leaderboard(10);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        for (int thread = 0; thread < 8; thread++) {
+            int offset = thread;
+            executor.execute(() -> {
+                for (int i = 0; i < 10_000; i++) {
+                    leaderboard.submit(i * 8 + offset, 0, false);
+                }
+            });
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+
+        List<Integer> expected = new ArrayList<>();
+        for (int score = 80_000 - 1; score >= 80_000 - 10; score--) {
+            expected.add(score);
+        }
+        assertEquals(expected, scores(leaderboard.getTop()));
+        assertEquals(80_000, leaderboard.getGames());
+    }
+}
@@ -0,0 +1,118 @@
+package spw4.game2048;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class MonteCarloSolverTest {
+
+    private static final ForkJoinPool SINGLE_WORKER = new ForkJoinPool(1);
+
+    private static MonteCarloSolver fixedSolver(int playouts, long seed) {
+        return new MonteCarloSolver(1, TimeUnit.DAYS, playouts, SINGLE_WORKER, seed);
+    }
+
+    private static List<Direction> play(Solver solver, Game game, int moves) {
+        List<Direction> played = new ArrayList<>();
+        for (int i = 0; i < moves && !game.isOver(); i++) {
+            Direction direction = solver.findBestMove(game);
+            played.add(direction);
+            game.move(direction);
+        }
+        return played;
+    }
+
+    @Test
+    public void testFindBestMoveWithNoPossibleMoveYieldsNull() {
+        Game game = mock(Game.class);
+        when(game.getRows()).thenReturn(4);
+        when(game.getColumns()).thenReturn(4);
+        when(game.getWinningTile()).thenReturn(2048);
+        when(game.getValueAt(anyInt(), anyInt())).thenAnswer(invocation -> {
+            int x = invocation.getArgument(0);
+            int y = invocation.getArgument(1);
+            return (x + y) % 2 == 0 ? 2 : 4;
+        });
+
+        assertNull(new MonteCarloSolver().findBestMove(game));
+    }
+
+    @Test
+    public void testFindBestMoveWithSingleLegalMoveYieldsIt() {
+        GameImpl game = new GameImpl(mock(TileRandom.class));
+        game.restore(new int[][] {
+                {2, 4, 8, 16},
+                {0, 0, 0, 0},
+                {0, 0, 0, 0},
+                {0, 0, 0, 0}}, 0, 0);
+
+        assertEquals(Direction.down, new MonteCarloSolver().findBestMove(game));
+    }
+
+    @Test
+    public void testFindBestMoveReturnsWithinTimeBudget() {
+        MonteCarloSolver solver = new MonteCarloSolver(10, TimeUnit.MILLISECONDS);
+        Game game = new GameImpl();
+        game.initialize();
+
+        long start = System.nanoTime();
+        assertNotNull(solver.findBestMove(game));
+
+        assertTrue(System.nanoTime() - start < TimeUnit.MILLISECONDS.toNanos(500));
+    }
+
+    @Test
+    public void testSameSeedYieldsSameMoves() {
+        Game first = new BitboardGame(new SplitMixTileRandom(5));
+        Game second = new BitboardGame(new SplitMixTileRandom(5));
+        first.initialize();
+        second.initialize();
+
+        assertEquals(play(fixedSolver(100, 9), first, 30), play(fixedSolver(100, 9), second, 30));
+    }
+
+    @Test
+    public void testFindBestMoveOnLargerBoardYieldsLegalMove() {
+        GameImpl game = new GameImpl(5, 6, 2048, new SplitMixTileRandom(4));
+        game.initialize();
+        MonteCarloSolver solver = fixedSolver(200, 1);
+
+        for (int i = 0; i < 20; i++) {
+            Direction direction = solver.findBestMove(game);
+            assertNotEquals(0, game.getLegalMoves() & 1 << direction.ordinal());
+            game.move(direction);
+        }
+    }
+
+    @Test
+    public void testFindBestMoveWithOtherTargetPlaysOutGame() {
+        GameImpl game = new GameImpl(4, 4, 131072, mock(TileRandom.class));
+        game.restore(new int[][] {
+                {32768, 32768, 0, 0},
+                {0, 0, 0, 0},
+                {0, 0, 0, 0},
+                {0, 0, 0, 0}}, 0, 0);
+
+        // a bitboard would not merge the two tiles
+        assertNotNull(fixedSolver(50, 1).findBestMove(game));
+    }
+
+    @Test
+    public void testSolverPlaysBetterThanRandomMoves() {
+        MonteCarloSolver solver = fixedSolver(300, 7);
+        Game game = new BitboardGame(new SplitMixTileRandom(7));
+        game.initialize();
+
+        play(solver, game, Integer.MAX_VALUE);
+
+        assertTrue(game.getScore() > 5000, "score " + game.getScore());
+    }
+}
@@ -0,0 +1,139 @@
+package spw4.game2048;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+public class OpeningBookTest {
+
+    private static final long OPENING = 1L | 2L << 28;
+
+    @TempDir
+    static Path directory;
+
+    private static Path file;
+
+    @BeforeAll
+    public static void generate() throws IOException {
+        file = directory.resolve("openings.book");
+        OpeningBook.generate(file, 1, 2);
+    }
+
+    @Test
+    public void testGenerateYieldsCanonicalOpenings() throws IOException {
+        OpeningBook book = new OpeningBook(file, mock(Solver.class));
+
+        // 480 starting boards fall into far fewer classes under the 8 symmetries
+        assertTrue(book.getEntries() > 60 && book.getEntries() < 20_000, "entries " + book.getEntries());
+    }
+
+    @Test
+    public void testLookupYieldsMoveOfSearch() throws IOException {
+        OpeningBook book = new OpeningBook(file, mock(Solver.class));
+        ExpectimaxSolver solver = new ExpectimaxSolver(1, TimeUnit.DAYS, 2, ForkJoinPool.commonPool());
+        long canonical = BoardSymmetry.canonical(OPENING);
+
+        assertEquals(solver.analyze(canonical).direction, book.lookup(canonical));
+        assertEquals(solver.analyze(canonical).value, book.getValue(canonical));
+    }
+
+    @Test
+    public void testSymmetricBoardsYieldSymmetricMoves() throws IOException {
+        OpeningBook book = new OpeningBook(file, mock(Solver.class));
+
+        long expected = BoardSymmetry.canonical(Bitboard.move(OPENING, book.lookup(OPENING)));
+        for (int symmetry = 0; symmetry < 8; symmetry++) {
+            long board = BoardSymmetry.transform(OPENING, symmetry);
+            Direction direction = book.lookup(board);
+            assertNotNull(direction);
+            assertEquals(expected, BoardSymmetry.canonical(Bitboard.move(board, direction)), "symmetry " + symmetry);
+        }
+    }
+
+    @Test
+    public void testUnknownBoardFallsBackToSolver() throws IOException {
+        Solver fallback = mock(Solver.class);
+        when(fallback.findBestMove(any())).thenReturn(Direction.up);
+        OpeningBook book = new OpeningBook(file, fallback);
+        GameImpl game = new GameImpl(mock(TileRandom.class));
+        game.restore(new int[][] {
+                {2048, 1024, 512, 256},
+                {16, 32, 64, 128},
+                {8, 4, 2, 0},
+                {0, 0, 0, 0}}, 900, 20_000);
+
+        assertEquals(Direction.up, book.findBestMove(game));
+        verify(fallback).findBestMove(game);
+        assertEquals(1, book.getMissCount());
+    }
+
+    @Test
+    public void testKnownBoardSkipsSolver() throws IOException {
+        Solver fallback = mock(Solver.class);
+        OpeningBook book = new OpeningBook(file, fallback);
+        GameImpl game = new GameImpl(mock(TileRandom.class));
+        game.restore(Bitboard.toTiles(OPENING), 0, 0);
+
+        assertNotNull(book.findBestMove(game));
+        verifyNoInteractions(fallback);
+        assertEquals(1, book.getHitCount());
+    }
+
+    @Test
+    public void testGameWithOtherTargetSkipsBook() throws IOException {
+        Solver fallback = mock(Solver.class);
+        when(fallback.findBestMove(any())).thenReturn(Direction.up);
+        OpeningBook book = new OpeningBook(file, fallback);
+        GameImpl game = new GameImpl(4, 4, 4096, mock(TileRandom.class));
+        game.restore(Bitboard.toTiles(OPENING), 0, 0);
+
+        assertEquals(Direction.up, book.findBestMove(game));
+        verify(fallback).findBestMove(game);
+        assertEquals(0, book.getHitCount());
+    }
+
+    @Test
+    public void testOtherFileThrows() throws IOException {
+        Path other = directory.resolve("other.book");
+        Files.writeString(other, "not a book, but long enough for a header");
+
+        assertThrows(IOException.class, () -> new OpeningBook(other, mock(Solver.class)));
+    }
+
+    @Test
+    public void testBookWithoutFreeSlotThrows() throws IOException {
+        ByteBuffer content = ByteBuffer.wrap(Files.readAllBytes(file));
+        Path overfull = directory.resolve("overfull.book");
+        content.putInt(12, (content.capacity() - 32) / 16);
+        Files.write(overfull, content.array());
+
+        assertThrows(IOException.class, () -> new OpeningBook(overfull, mock(Solver.class)));
+    }
+
+    @Test
+    public void testUnknownBoardInFullTableYieldsMiss() throws IOException {
+        ByteBuffer content = ByteBuffer.wrap(Files.readAllBytes(file));
+        Path full = directory.resolve("full.book");
+        for (int slot = 32; slot < content.capacity(); slot += 16) {
+            if (content.getLong(slot) == 0)
+                content.putLong(slot, -1L);
+        }
+        Files.write(full, content.array());
+        OpeningBook book = new OpeningBook(full, mock(Solver.class));
+
+        assertTimeoutPreemptively(Duration.ofSeconds(10), () -> assertNull(book.lookup(0x1234_5678L)));
+        assertEquals(1, book.getMissCount());
+    }
+}
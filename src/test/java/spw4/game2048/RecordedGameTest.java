@@ -0,0 +1,100 @@
+package spw4.game2048;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RecordedGameTest {
+
+    private RecordedGame game;
+    private List<String> states;
+
+    @BeforeEach
+    public void setUp() {
+        game = new RecordedGame(2048, 8);
+        game.initialize();
+        states = new ArrayList<>();
+        states.add(game.toString());
+        Random random = new Random(4);
+        for (int i = 0; i < 50 && !game.isOver(); i++) {
+            game.move(Direction.values()[random.nextInt(4)]);
+            states.add(game.toString());
+        }
+    }
+
+    @Test
+    public void testReplayYieldsStateAfterEveryMove() {
+        for (int moves = 0; moves < states.size(); moves++) {
+            assertEquals(states.get(moves), game.replay(moves).toString());
+        }
+    }
+
+    @Test
+    public void testReplayBeyondRecordedMovesThrows() {
+        assertThrows(IndexOutOfBoundsException.class, () -> game.replay(states.size()));
+    }
+
+    @Test
+    public void testUndoYieldsPreviousState() {
+        assertTrue(game.undo());
+        assertTrue(game.undo());
+
+        assertEquals(states.get(states.size() - 3), game.toString());
+    }
+
+    @Test
+    public void testUndoOnNewGameYieldsFalse() {
+        RecordedGame newGame = new RecordedGame(1);
+        newGame.initialize();
+
+        assertFalse(newGame.undo());
+    }
+
+    @Test
+    public void testMoveAfterUndoRepeatsSameTiles() {
+        int moves = game.getMoves();
+        Direction last = game.getMove(moves - 1);
+
+        game.undo();
+        game.move(last);
+
+        assertEquals(states.get(moves), game.toString());
+    }
+
+    @Test
+    public void testRewindAcrossCheckpointsAndReplayYieldsSameGame() {
+        List<Direction> moves = new ArrayList<>();
+        for (int i = 0; i < game.getMoves(); i++) {
+            moves.add(game.getMove(i));
+        }
+
+        game.rewind(3);
+        for (int i = 3; i < moves.size(); i++) {
+            game.move(moves.get(i));
+        }
+
+        assertEquals(states.get(states.size() - 1), game.toString());
+    }
+
+    @Test
+    public void testFromBytesYieldsSameGame() {
+        byte[] bytes = game.toBytes();
+        RecordedGame copy = RecordedGame.fromBytes(bytes);
+
+        assertEquals(16 + (game.getMoves() + 3) / 4, bytes.length);
+        assertEquals(game.getSeed(), copy.getSeed());
+        assertEquals(game.toString(), copy.toString());
+    }
+
+    @Test
+    public void testInitializeRestartsSameGame() {
+        game.initialize();
+
+        assertEquals(states.get(0), game.toString());
+    }
+}
@@ -0,0 +1,38 @@
+package spw4.game2048;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SimulationTest {
+
+    @Test
+    public void testRunYieldsAllGames() throws InterruptedException {
+        SimulationResult result = new Simulation(50, 2, 1, RandomSolver::new).run();
+
+        assertEquals(50, result.getGames());
+        assertTrue(result.getTotalMoves() > 0);
+        assertTrue(result.getMinScore() <= result.getScorePercentile(50));
+        assertTrue(result.getScorePercentile(50) <= result.getMaxScore());
+    }
+
+    @Test
+    public void testRunWithSameSeedYieldsSameResultForAnyNumberOfThreads() throws InterruptedException {
+        SimulationResult singleThreaded = new Simulation(200, 1, 42, RandomSolver::new).run();
+        SimulationResult multiThreaded = new Simulation(200, 4, 42, RandomSolver::new).run();
+
+        assertEquals(singleThreaded.getTotalMoves(), multiThreaded.getTotalMoves());
+        assertEquals(singleThreaded.getMeanScore(), multiThreaded.getMeanScore());
+        for (int tile = 2; tile <= 2048; tile *= 2) {
+            assertEquals(singleThreaded.getMaxTileCount(tile), multiThreaded.getMaxTileCount(tile));
+        }
+    }
+
+    @Test
+    public void testRunWithDifferentSeedsYieldsDifferentResults() throws InterruptedException {
+        SimulationResult first = new Simulation(100, 2, 1, RandomSolver::new).run();
+        SimulationResult second = new Simulation(100, 2, 2, RandomSolver::new).run();
+
+        assertNotEquals(first.getTotalMoves(), second.getTotalMoves());
+    }
+}
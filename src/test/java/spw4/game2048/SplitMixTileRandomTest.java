@@ -0,0 +1,84 @@
+package spw4.game2048;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SplitMixTileRandomTest {
+
+    private static int countFours(TileRandom tileRandom, int draws) {
+        int fours = 0;
+        for (int i = 0; i < draws; i++) {
+            if (tileRandom.getRandomValue() == 4)
+                fours++;
+        }
+        return fours;
+    }
+
+    @Test
+    public void testSetStateRepeatsDraws() {
+        SplitMixTileRandom tileRandom = new SplitMixTileRandom(42);
+        long state = tileRandom.getState();
+        int first = tileRandom.getRandomPosition(1000);
+        long second = tileRandom.nextLong();
+
+        tileRandom.setState(state);
+
+        assertEquals(first, tileRandom.getRandomPosition(1000));
+        assertEquals(second, tileRandom.nextLong());
+    }
+
+    @Test
+    public void testStreamsOfSameBaseSeedDiffer() {
+        SplitMixTileRandom first = SplitMixTileRandom.forStream(7, 0);
+        SplitMixTileRandom second = SplitMixTileRandom.forStream(7, 1);
+
+        assertNotEquals(first.nextLong(), second.nextLong());
+        assertEquals(SplitMixTileRandom.forStream(7, 1).getState(), SplitMixTileRandom.forStream(7, 1).getState());
+    }
+
+    @Test
+    public void testSplitYieldsIndependentGenerator() {
+        SplitMixTileRandom parent = new SplitMixTileRandom(1);
+        SplitMixTileRandom child = parent.split();
+
+        assertNotEquals(parent.getState(), child.getState());
+        assertNotEquals(parent.nextLong(), child.nextLong());
+    }
+
+    @Test
+    public void testGetRandomPositionStaysInBounds() {
+        SplitMixTileRandom tileRandom = new SplitMixTileRandom(3);
+        int[] counts = new int[5];
+
+        for (int i = 0; i < 50_000; i++) {
+            counts[tileRandom.getRandomPosition(5)]++;
+        }
+
+        for (int count : counts) {
+            assertTrue(Math.abs(count - 10_000) < 500, "count " + count);
+        }
+    }
+
+    @Test
+    public void testGetRandomValueSpawnsFourInOneOfTen() {
+        int fours = countFours(new SplitMixTileRandom(5), 100_000);
+
+        assertTrue(Math.abs(fours - 10_000) < 400, "fours " + fours);
+    }
+
+    @Test
+    public void testConfiguredProbabilityOfFour() {
+        assertEquals(0, countFours(new SplitMixTileRandom(5, 0, 1), 1000));
+        assertEquals(1000, countFours(new SplitMixTileRandom(5, 3, 3), 1000));
+        assertEquals(0.25, new SplitMixTileRandom(5, 1, 4).getProbabilityOfFour());
+        assertThrows(IllegalArgumentException.class, () -> new SplitMixTileRandom(5, 2, 1));
+    }
+
+    @Test
+    public void testRealTileRandomSpawnsFourInOneOfTen() {
+        int fours = countFours(new RealTileRandom(5), 100_000);
+
+        assertTrue(Math.abs(fours - 10_000) < 400, "fours " + fours);
+    }
+}